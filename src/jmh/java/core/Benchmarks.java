@@ -0,0 +1,44 @@
+package core;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of the physics, search, learning and rendering hot paths.
+ *
+ * Unless the command line says otherwise, every benchmark runs with the gc profiler, so allocation rates are reported
+ * next to the ops/s scores, and the results are written as JSON to {@code jmh-result.json}, which can be kept and
+ * diffed between commits.
+ */
+public final class Benchmarks {
+
+  /** The file results are written to when no result file is given */
+  private static final String RESULT_FILE = "jmh-result.json";
+
+  /**
+   * Runs the benchmarks.
+   *
+   * @param args the usual JMH command line options, for example a regular expression selecting the benchmarks to run
+   *             or {@code -p obstacles=100} to run a single obstacle count
+   */
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+    if (commandLine.getProfilers().isEmpty()) {
+      options.addProfiler(GCProfiler.class);
+    }
+    if (!commandLine.getResultFormat().hasValue()) {
+      options.resultFormat(ResultFormatType.JSON);
+    }
+    if (!commandLine.getResult().hasValue()) {
+      options.result(RESULT_FILE);
+    }
+    new Runner(options.build()).run();
+  }
+}
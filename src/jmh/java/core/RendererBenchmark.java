@@ -0,0 +1,75 @@
+package core;
+
+import core.world.World;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures drawing a frame of a hallway generated from a fixed seed into an offscreen image, with the size, scale and
+ * rendering hints of {@link Simulation}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RendererBenchmark {
+
+  private static final long SEED = 42;
+  private static final int WIDTH = 940;
+  private static final int HEIGHT = 200;
+  private static final double SCALE = 2.5;
+
+  @Param({ "25", "100", "400" })
+  int obstacles;
+
+  private World world;
+  private BufferedImage image;
+  private Graphics2D g;
+
+  @Setup
+  public void setup() {
+    this.world = new World(World.generateRandomState(new SplittableRandom(SEED), this.obstacles));
+    this.image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+    this.g = this.image.createGraphics();
+    this.g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+    this.g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+    // origin at the center and the y axis pointing up, as in Simulation.transform
+    this.g.scale(1, -1);
+    this.g.translate(WIDTH / 2.0, -HEIGHT / 2.0);
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.g.dispose();
+  }
+
+  /**
+   * Clearing the frame and drawing every body.
+   */
+  @Benchmark
+  public BufferedImage render() {
+    this.g.setColor(Color.WHITE);
+    this.g.fillRect(-WIDTH / 2, -HEIGHT / 2, WIDTH, HEIGHT);
+    Graphics2DRenderer.render(this.g, this.world, SCALE);
+    return this.image;
+  }
+}
@@ -0,0 +1,65 @@
+package core.agents;
+
+import core.world.Dyn4jBackend;
+import core.world.KinematicBackend;
+import core.world.ObstacleTimeline;
+import core.world.PhysicsBackend;
+import core.world.World;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures one select-expand-simulate-backpropagate iteration of {@link mcts}, from a hallway generated from a fixed
+ * seed. The tree is started afresh every iteration, so its depth stays comparable between runs.
+ *
+ * The timeline variant steps edges and rollouts against obstacles precomputed once per iteration, outside the
+ * measurement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MctsBenchmark {
+
+  private static final long SEED = 42;
+
+  @Param({ "25", "100", "400" })
+  int obstacles;
+
+  @Param({ "dyn4j", "kinematic", "timeline" })
+  String rollouts;
+
+  private World root;
+  private mcts search;
+
+  @Setup(Level.Iteration)
+  public void setup() {
+    this.root = new World(World.generateRandomState(new SplittableRandom(SEED), this.obstacles));
+    PhysicsBackend backend = "kinematic".equals(this.rollouts) ? new KinematicBackend() : new Dyn4jBackend();
+    this.search = new mcts(backend);
+    this.search.setSeed(SEED);
+    if ("timeline".equals(this.rollouts)) {
+      this.search.setObstacleTimeline(new ObstacleTimeline(this.root.checkpoint(), ObstacleTimeline.DEFAULT_TICKS));
+    }
+  }
+
+  @Benchmark
+  public int doRollout() {
+    this.search.doRollout(this.root);
+    return this.search.getNodeCount();
+  }
+}
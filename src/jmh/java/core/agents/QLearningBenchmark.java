@@ -0,0 +1,78 @@
+package core.agents;
+
+import core.world.World;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.dyn4j.dynamics.Force;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the feature extraction and Q value scoring of {@link QLearningAgent}, with weights and hallways drawn from a
+ * fixed seed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QLearningBenchmark {
+
+  private static final long SEED = 42;
+
+  @Param({ "25", "100", "400" })
+  int obstacles;
+
+  private World world;
+  private double[] weights;
+  private FeatureVector features;
+  private QLearningAgent agent;
+
+  @Setup
+  public void setup() {
+    SplittableRandom random = new SplittableRandom(SEED);
+    this.world = new World(World.generateRandomState(random, this.obstacles));
+    this.weights = new double[QLearningAgent.WEIGHT_COUNT];
+    for (int index = 0; index < this.weights.length; index++) {
+      this.weights[index] = random.nextDouble() - 0.5;
+    }
+    this.features = new FeatureVector();
+    this.features.extract(this.world);
+    this.agent = new QLearningAgent(0.05, 0.9, 0.4, 0, this.weights.clone());
+  }
+
+  /**
+   * Binning the player and scanning the radar around it.
+   */
+  @Benchmark
+  public float[] extract() {
+    this.features.extract(this.world);
+    return this.features.rays;
+  }
+
+  /**
+   * Scoring one action from features that were already extracted.
+   */
+  @Benchmark
+  public double qValue() {
+    return this.features.dot(this.weights, 0);
+  }
+
+  /**
+   * Extracting the features once and scoring every action from them, as a greedy decision does.
+   */
+  @Benchmark
+  public Force chooseAction() {
+    return this.agent.chooseAction(this.world);
+  }
+}
@@ -0,0 +1,102 @@
+package core.world;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures occupancy queries against the obstacles of a hallway generated from a fixed seed, next to the linear scan
+ * over every obstacle that they replace.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OccupancyIndexBenchmark {
+
+  private static final long SEED = 42;
+  private static final int TICKS = 120;
+  private static final int QUERIES = 1024;
+  private static final int PATH_LENGTH = 20;
+
+  @Param({ "25", "100", "400" })
+  int obstacles;
+
+  private ObstacleTimeline timeline;
+  private OccupancyIndex index;
+  private double[] queryX;
+  private double[] queryY;
+  private int[] queryTick;
+  private double[] pathX;
+  private double[] pathY;
+  private int query;
+
+  @Setup
+  public void setup() {
+    SplittableRandom random = new SplittableRandom(SEED);
+    this.timeline = new ObstacleTimeline(World.generateRandomState(random, this.obstacles), TICKS);
+    this.index = this.timeline.getOccupancy();
+    this.queryX = new double[QUERIES];
+    this.queryY = new double[QUERIES];
+    this.queryTick = new int[QUERIES];
+    for (int count = 0; count < QUERIES; count++) {
+      this.queryX[count] = random.nextDouble() * World.WORLD_WIDTH - World.WORLD_WIDTH / 2;
+      this.queryY[count] = random.nextDouble() * World.WORLD_HEIGHT - World.WORLD_HEIGHT / 2;
+      this.queryTick[count] = random.nextInt(TICKS);
+    }
+
+    // the player drifting right from the start at a steady speed
+    this.pathX = new double[PATH_LENGTH];
+    this.pathY = new double[PATH_LENGTH];
+    for (int point = 0; point < PATH_LENGTH; point++) {
+      this.pathX[point] = -10 + 0.5 * point;
+    }
+  }
+
+  private int next() {
+    this.query = (this.query + 1) & (QUERIES - 1);
+    return this.query;
+  }
+
+  @Benchmark
+  public boolean isFree() {
+    int query = this.next();
+    return this.index.isFree(this.queryTick[query], this.queryX[query], this.queryY[query], World.BODY_RADIUS);
+  }
+
+  /**
+   * The same query answered by testing every obstacle of the tick.
+   */
+  @Benchmark
+  public boolean isFreeLinear() {
+    int query = this.next();
+    int tick = this.queryTick[query];
+    double reach = 2 * World.BODY_RADIUS;
+    for (int index = 0; index < this.obstacles; index++) {
+      double dx = this.timeline.getObstacleX(tick, index) - this.queryX[query];
+      double dy = this.timeline.getObstacleY(tick, index) - this.queryY[query];
+      if (dx * dx + dy * dy < reach * reach) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Benchmark
+  public int earliestCollision() {
+    return this.index.earliestCollision(this.queryTick[this.next()] % (TICKS - PATH_LENGTH), this.pathX, this.pathY,
+        PATH_LENGTH, World.BODY_RADIUS);
+  }
+}
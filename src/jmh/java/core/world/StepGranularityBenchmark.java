@@ -0,0 +1,46 @@
+package core.world;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures generating a successor world at each {@link StepGranularity}. {@link GranularityTradeoff} reports how far
+ * the coarse trajectories drift from the fine ones.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StepGranularityBenchmark {
+
+  private static final long SEED = 42;
+
+  @Param({ "fine", "coarse" })
+  String granularity;
+
+  private World world;
+
+  @Setup
+  public void setup() {
+    this.world = new World(World.generateRandomState(new SplittableRandom(SEED)));
+    this.world.setStepGranularity("coarse".equals(this.granularity) ? StepGranularity.COARSE : StepGranularity.FINE);
+  }
+
+  @Benchmark
+  public World generateNextState() {
+    return this.world.generateNextState(World.FORCE_RIGHT);
+  }
+}
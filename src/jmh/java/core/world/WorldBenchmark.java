@@ -0,0 +1,105 @@
+package core.world;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building, stepping and hashing a {@link World}, on hallways with a varying number of obstacles generated
+ * from a fixed seed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorldBenchmark {
+
+  private static final long SEED = 42;
+
+  @Param({ "25", "100", "400" })
+  int obstacles;
+
+  private WorldState initial;
+  private World world;
+  private World equal;
+
+  // the arrays of the initial state, for building snapshots that have not cached their fingerprint yet
+  private double[] obstacleX;
+  private double[] obstacleY;
+  private double[] obstacleVelocityX;
+  private double[] obstacleVelocityY;
+  private long[] collisions;
+
+  @Setup
+  public void setup() {
+    this.initial = World.generateRandomState(new SplittableRandom(SEED), this.obstacles);
+    this.world = new World(this.initial);
+    this.equal = new World(this.initial);
+
+    this.obstacleX = new double[this.obstacles];
+    this.obstacleY = new double[this.obstacles];
+    this.obstacleVelocityX = new double[this.obstacles];
+    this.obstacleVelocityY = new double[this.obstacles];
+    this.collisions = new long[WorldState.bitsetLength(this.obstacles)];
+    for (int index = 0; index < this.obstacles; index++) {
+      this.obstacleX[index] = this.initial.getObstacleX(index);
+      this.obstacleY[index] = this.initial.getObstacleY(index);
+      this.obstacleVelocityX[index] = this.initial.getObstacleVelocityX(index);
+      this.obstacleVelocityY[index] = this.initial.getObstacleVelocityY(index);
+    }
+  }
+
+  /**
+   * Generating a random state and building its dyn4j world, as {@link World#World()} does.
+   */
+  @Benchmark
+  public World construct() {
+    return new World(World.generateRandomState(new SplittableRandom(SEED), this.obstacles));
+  }
+
+  /**
+   * Building the successor world of one action, as the planners do for every edge.
+   */
+  @Benchmark
+  public World generateNextState() {
+    return this.world.generateNextState(World.FORCE_RIGHT);
+  }
+
+  /**
+   * Hashing a world whose snapshot and fingerprint are already cached, the common case for tree lookups.
+   */
+  @Benchmark
+  public int hashCodeCached() {
+    return this.world.hashCode();
+  }
+
+  /**
+   * Fingerprinting a snapshot from scratch.
+   */
+  @Benchmark
+  public int hashCodeFresh() {
+    return new WorldState(this.initial.getPlayerX(), this.initial.getPlayerY(), this.initial.getPlayerVelocityX(),
+        this.initial.getPlayerVelocityY(), this.obstacleX, this.obstacleY, this.obstacleVelocityX,
+        this.obstacleVelocityY, this.collisions, false).hashCode();
+  }
+
+  /**
+   * Comparing two distinct worlds in the same state, which compares every body once the fingerprints match.
+   */
+  @Benchmark
+  public boolean equalWorlds() {
+    return this.world.equals(this.equal);
+  }
+}
@@ -0,0 +1,338 @@
+package core;
+
+import core.agents.PlanningAgent;
+import core.agents.QLearningAgent;
+import core.agents.RandomAgent;
+import core.agents.RightAgent;
+import core.agents.mcts;
+import core.world.KinematicBackend;
+import core.world.World;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Compares agents over many seeded episodes, running the episodes of each agent on a pool of worker threads.
+ *
+ * Every worker builds its own agent from a supplier and plays its own worlds, so agents never need to be thread-safe.
+ * The seed of each episode depends only on the base seed and the episode number, so every agent faces the same worlds
+ * no matter how the episodes are spread over the workers. Results are kept per episode and summarized per agent, and
+ * can be written as CSV and JSON to track regressions between builds.
+ */
+public final class EvaluationHarness {
+
+  /** Decision latencies are counted in power-of-two microsecond buckets, the last one open-ended */
+  private static final int HISTOGRAM_BUCKETS = 24;
+
+  private final int workers;
+  private final int maxSteps;
+
+  private final List<Episode> episodes = new ArrayList<>();
+  private final Map<String, Summary> summaries = new LinkedHashMap<>();
+
+  /**
+   * Creates a new harness.
+   *
+   * @param workers  the number of worker threads
+   * @param maxSteps the number of steps after which an unfinished episode is cut off
+   */
+  public EvaluationHarness(int workers, int maxSteps) {
+    if (workers < 1) {
+      throw new IllegalArgumentException("At least one worker is required");
+    }
+    this.workers = workers;
+    this.maxSteps = maxSteps;
+  }
+
+  /**
+   * Runs seeded episodes with one kind of agent and records their results.
+   *
+   * @param name     the name the results are recorded under
+   * @param agents   creates the agent of each worker
+   * @param episodes the number of episodes
+   * @param seed     the base seed the episode seeds are derived from
+   * @throws InterruptedException if the calling thread is interrupted, in which case the workers are cancelled and
+   *                              nothing is recorded for this agent
+   */
+  public void evaluate(String name, Supplier<PlanningAgent> agents, int episodes, long seed)
+      throws InterruptedException {
+    long[] seeds = new long[episodes];
+    SplittableRandom seeder = new SplittableRandom(seed);
+    for (int index = 0; index < episodes; index++) {
+      seeds[index] = seeder.nextLong();
+    }
+
+    AtomicInteger next = new AtomicInteger();
+    Summary summary = new Summary(name);
+    List<Callable<List<Episode>>> tasks = new ArrayList<>();
+    for (int worker = 0; worker < this.workers; worker++) {
+      tasks.add(() -> {
+        PlanningAgent agent = agents.get();
+        agent.init();
+        HeadlessRunner runner = new HeadlessRunner(agent, this.maxSteps);
+        List<Episode> results = new ArrayList<>();
+        for (int index = next.getAndIncrement(); index < episodes && !Thread.currentThread().isInterrupted();
+            index = next.getAndIncrement()) {
+          SplittableRandom random = new SplittableRandom(seeds[index]);
+          World world = new World(random.nextLong());
+          agent.setSeed(random.nextLong());
+          int steps = runner.runEpisode(world);
+          results.add(new Episode(name, index, seeds[index], outcome(world), steps, runner.getLastEpisodeLatency()));
+        }
+        summary.addLatencies(runner.getLatencies());
+        return results;
+      });
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(this.workers);
+    List<Episode> results = new ArrayList<>();
+    try {
+      for (Future<List<Episode>> future : pool.invokeAll(tasks)) {
+        results.addAll(future.get());
+      }
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+
+    results.sort(Comparator.comparingInt(episode -> episode.index));
+    for (Episode episode : results) {
+      summary.add(episode);
+    }
+    this.episodes.addAll(results);
+    this.summaries.put(name, summary);
+  }
+
+  private static String outcome(World world) {
+    if (world.isWin()) {
+      return "win";
+    } else if (world.isLose()) {
+      return "loss";
+    } else {
+      return "cutoff";
+    }
+  }
+
+  /**
+   * Prints the summary of every agent evaluated so far.
+   */
+  public void print() {
+    System.out.println("agent        episodes  win rate  loss rate  mean steps  steps to goal  p50 ms  p99 ms");
+    for (Summary summary : this.summaries.values()) {
+      System.out.printf(Locale.ROOT, "%-12s %8d  %8.3f  %9.3f  %10.1f  %13.1f  %6.3f  %6.3f%n", summary.agent,
+          summary.episodes, summary.winRate(), summary.lossRate(), summary.meanSteps(), summary.meanStepsToGoal(),
+          summary.percentile(50) / 1e6, summary.percentile(99) / 1e6);
+    }
+  }
+
+  /**
+   * Writes one row per episode: agent, episode, seed, outcome, steps and mean decision time.
+   *
+   * @param file the CSV file
+   * @throws IOException if the file cannot be written
+   */
+  public void writeCsv(Path file) throws IOException {
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+      out.println("agent,episode,seed,outcome,steps,mean_decision_ns");
+      for (Episode episode : this.episodes) {
+        out.printf(Locale.ROOT, "%s,%d,%d,%s,%d,%d%n", csv(episode.agent), episode.index, episode.seed,
+            episode.outcome, episode.steps, episode.steps == 0 ? 0 : episode.latency / episode.steps);
+      }
+    }
+  }
+
+  /**
+   * Writes the summary of every agent, including its decision latency histogram.
+   *
+   * @param file the JSON file
+   * @throws IOException if the file cannot be written
+   */
+  public void writeJson(Path file) throws IOException {
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+      out.println("{");
+      out.printf(Locale.ROOT, "  \"workers\": %d,%n  \"maxSteps\": %d,%n  \"agents\": [%n", this.workers,
+          this.maxSteps);
+      int remaining = this.summaries.size();
+      for (Summary summary : this.summaries.values()) {
+        out.printf(Locale.ROOT, "    {%n      \"agent\": %s,%n      \"episodes\": %d,%n      \"wins\": %d,%n"
+                + "      \"losses\": %d,%n      \"cutoffs\": %d,%n      \"winRate\": %.6f,%n"
+                + "      \"meanSteps\": %.3f,%n      \"meanStepsToGoal\": %.3f,%n      \"latencyP50Nanos\": %d,%n"
+                + "      \"latencyP90Nanos\": %d,%n      \"latencyP99Nanos\": %d,%n      \"latencyHistogram\": [",
+            json(summary.agent), summary.episodes, summary.wins, summary.losses,
+            summary.episodes - summary.wins - summary.losses, summary.winRate(), summary.meanSteps(),
+            summary.meanStepsToGoal(), summary.percentile(50), summary.percentile(90), summary.percentile(99));
+        for (int bucket = 0; bucket < HISTOGRAM_BUCKETS; bucket++) {
+          out.printf(Locale.ROOT, "%s{\"belowMicros\": %s, \"count\": %d}", bucket == 0 ? "" : ", ",
+              bucket == HISTOGRAM_BUCKETS - 1 ? "null" : Long.toString(1L << bucket), summary.histogram[bucket]);
+        }
+        out.printf("]%n    }%s%n", --remaining > 0 ? "," : "");
+      }
+      out.println("  ]");
+      out.println("}");
+    }
+  }
+
+  /**
+   * Quotes a CSV field if it contains a separator, quote or line break, doubling any quotes inside.
+   */
+  private static String csv(String field) {
+    if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+      return field;
+    }
+    return '"' + field.replace("\"", "\"\"") + '"';
+  }
+
+  /**
+   * Encodes a string as a quoted JSON string, escaping quotes, backslashes and control characters.
+   */
+  private static String json(String value) {
+    StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+    for (int index = 0; index < value.length(); index++) {
+      char c = value.charAt(index);
+      if (c == '"' || c == '\\') {
+        builder.append('\\').append(c);
+      } else if (c < 0x20) {
+        builder.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+      } else {
+        builder.append(c);
+      }
+    }
+    return builder.append('"').toString();
+  }
+
+  /**
+   * The result of one episode.
+   */
+  private static final class Episode {
+
+    private final String agent;
+    private final int index;
+    private final long seed;
+    private final String outcome;
+    private final int steps;
+    private final long latency;
+
+    private Episode(String agent, int index, long seed, String outcome, int steps, long latency) {
+      this.agent = agent;
+      this.index = index;
+      this.seed = seed;
+      this.outcome = outcome;
+      this.steps = steps;
+      this.latency = latency;
+    }
+  }
+
+  /**
+   * The results of one agent over all its episodes.
+   */
+  private static final class Summary {
+
+    private final String agent;
+    private int episodes;
+    private int wins;
+    private int losses;
+    private long steps;
+    private long winSteps;
+    private final long[] histogram = new long[HISTOGRAM_BUCKETS];
+    private long[] latencies = new long[0];
+
+    private Summary(String agent) {
+      this.agent = agent;
+    }
+
+    private void add(Episode episode) {
+      this.episodes++;
+      this.steps += episode.steps;
+      if ("win".equals(episode.outcome)) {
+        this.wins++;
+        this.winSteps += episode.steps;
+      } else if ("loss".equals(episode.outcome)) {
+        this.losses++;
+      }
+    }
+
+    private synchronized void addLatencies(long[] latencies) {
+      for (long latency : latencies) {
+        long micros = latency / 1_000;
+        int bucket = micros == 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+        this.histogram[Math.min(bucket, HISTOGRAM_BUCKETS - 1)]++;
+      }
+      int length = this.latencies.length;
+      this.latencies = Arrays.copyOf(this.latencies, length + latencies.length);
+      System.arraycopy(latencies, 0, this.latencies, length, latencies.length);
+    }
+
+    private double winRate() {
+      return this.episodes == 0 ? 0.0 : (double) this.wins / this.episodes;
+    }
+
+    private double lossRate() {
+      return this.episodes == 0 ? 0.0 : (double) this.losses / this.episodes;
+    }
+
+    private double meanSteps() {
+      return this.episodes == 0 ? 0.0 : (double) this.steps / this.episodes;
+    }
+
+    private double meanStepsToGoal() {
+      return this.wins == 0 ? 0.0 : (double) this.winSteps / this.wins;
+    }
+
+    private long percentile(double percentile) {
+      if (this.latencies.length == 0) {
+        return 0;
+      }
+      long[] sorted = this.latencies.clone();
+      Arrays.sort(sorted);
+      int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+      return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+  }
+
+  /**
+   * Evaluates the built-in agents and writes the results.
+   *
+   * @param args optionally the number of episodes per agent, the number of workers and the output directory
+   * @throws IOException          if the results cannot be written
+   * @throws InterruptedException if the evaluation is interrupted, in which case nothing is written
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    System.setProperty("java.awt.headless", "true");
+    int episodes = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+    Path output = Paths.get(args.length > 2 ? args[2] : "evaluation");
+    long seed = 42;
+
+    EvaluationHarness harness = new EvaluationHarness(workers, 5_000);
+    harness.evaluate("random", RandomAgent::new, episodes, seed);
+    harness.evaluate("right", RightAgent::new, episodes, seed);
+    harness.evaluate("mcts", () -> new mcts(new KinematicBackend()), episodes, seed);
+    Path weights = Paths.get("qlearning.weights");
+    if (Files.exists(weights)) {
+      harness.evaluate("qlearning", () -> QLearningAgent.loadOrTrain(weights, 0.05, 0.9, 0.4, 0), episodes, seed);
+    }
+
+    harness.print();
+    Files.createDirectories(output);
+    harness.writeCsv(output.resolve("episodes.csv"));
+    harness.writeJson(output.resolve("summary.json"));
+  }
+}
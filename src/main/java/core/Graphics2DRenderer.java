@@ -2,9 +2,13 @@ package core;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Path2D;
 
+import core.world.World;
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.BodyFixture;
 import org.dyn4j.geometry.Circle;
 import org.dyn4j.geometry.Polygon;
 import org.dyn4j.geometry.Shape;
@@ -15,6 +19,56 @@ import org.dyn4j.geometry.Vector2;
  */
 public final class Graphics2DRenderer {
 
+  /**
+   * Renders the walls, goal, player and obstacles of the given world to the given graphics context.
+   *
+   * @param g the graphics context, with the origin at the center of the hallway and the y axis pointing up
+   * @param world the world to render
+   * @param scale the scale to render the world (pixels per dyn4j unit (typically meter))
+   */
+  public static void render(Graphics2D g, World world, double scale) {
+    // draw the walls and goal
+    for (Body wall : world.walls) {
+      Graphics2DRenderer.render(g, wall, scale, Color.BLACK);
+    }
+    Graphics2DRenderer.render(g, world.goal, scale, Color.GREEN);
+
+    // draw the player
+    Graphics2DRenderer.render(g, world.player, scale, Color.BLUE);
+
+    // draw the obstacles
+    for (Body obstacle : world.obstacles.keySet()) {
+      Graphics2DRenderer.render(g, obstacle, scale, Color.RED);
+    }
+  }
+
+  /**
+   * Renders every fixture of the given body to the given graphics context using the given scale and color.
+   *
+   * @param g the graphics context
+   * @param body the body to render
+   * @param scale the scale to render the body (pixels per dyn4j unit (typically meter))
+   * @param color the color
+   */
+  public static void render(Graphics2D g, Body body, double scale, Color color) {
+    // save the original transform
+    AffineTransform ot = g.getTransform();
+
+    AffineTransform lt = new AffineTransform();
+    lt.translate(body.getTransform().getTranslationX() * scale,
+        body.getTransform().getTranslationY() * scale);
+    lt.rotate(body.getTransform().getRotationAngle());
+    g.transform(lt);
+
+    // loop over all the body fixtures for this body
+    for (BodyFixture fixture : body.getFixtures()) {
+      Graphics2DRenderer.render(g, fixture.getShape(), scale, color);
+    }
+
+    // set the original transform
+    g.setTransform(ot);
+  }
+
   /**
    * Renders the given shape to the given graphics context using the given scale and color.
    *
@@ -0,0 +1,204 @@
+package core;
+
+import core.agents.PlanningAgent;
+import core.agents.QLearningAgent;
+import core.agents.RandomAgent;
+import core.agents.RightAgent;
+import core.agents.mcts;
+import core.world.KinematicBackend;
+import core.world.World;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.dyn4j.dynamics.Force;
+
+/**
+ * Runs episodes of the world with a planning agent as fast as possible, without a window, rendering or sleeping, and
+ * reports how well and how quickly the agent plays.
+ *
+ * Each episode steps one world in place until it is terminal or the step limit is reached, timing every decision.
+ */
+public final class HeadlessRunner {
+
+  private final PlanningAgent agent;
+  private final int maxSteps;
+
+  // statistics over every episode run
+  private int episodes;
+  private int wins;
+  private int losses;
+  private long steps;
+  private long nanos;
+  private long[] latencies = new long[1024];
+  private int decisions;
+  private long episodeLatency;
+
+  /**
+   * Creates a new runner.
+   *
+   * @param agent    the agent choosing every action
+   * @param maxSteps the number of steps after which an unfinished episode is cut off
+   */
+  public HeadlessRunner(PlanningAgent agent, int maxSteps) {
+    this.agent = agent;
+    this.maxSteps = maxSteps;
+  }
+
+  /**
+   * Runs the given number of episodes, each from a fresh random world. The worlds and the agent's choices are drawn
+   * from the seed, so the same seed replays the same episodes.
+   *
+   * @param episodes the number of episodes
+   * @param seed     the seed
+   */
+  public void run(int episodes, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    for (int episode = 0; episode < episodes; episode++) {
+      SplittableRandom split = random.split();
+      World world = new World(split.nextLong());
+      this.agent.setSeed(split.nextLong());
+      this.runEpisode(world);
+    }
+  }
+
+  /**
+   * Runs one episode from the given world, which is stepped in place.
+   *
+   * @param world the initial world
+   * @return the number of steps taken
+   */
+  public int runEpisode(World world) {
+    long start = System.nanoTime();
+    this.episodeLatency = 0;
+    int step = 0;
+    while (!world.isTerminal() && step < this.maxSteps) {
+      long decision = System.nanoTime();
+      Force action = this.agent.chooseAction(world);
+      this.record(System.nanoTime() - decision);
+      world.step(action);
+      step++;
+    }
+
+    this.episodes++;
+    this.steps += step;
+    this.nanos += System.nanoTime() - start;
+    if (world.isWin()) {
+      this.wins++;
+    } else if (world.isLose()) {
+      this.losses++;
+    }
+    return step;
+  }
+
+  private void record(long latency) {
+    if (this.decisions == this.latencies.length) {
+      this.latencies = Arrays.copyOf(this.latencies, this.decisions * 2);
+    }
+    this.latencies[this.decisions++] = latency;
+    this.episodeLatency += latency;
+  }
+
+  /**
+   * Returns the total time spent choosing actions in the last episode.
+   *
+   * @return the time in nanoseconds
+   */
+  public long getLastEpisodeLatency() {
+    return this.episodeLatency;
+  }
+
+  /**
+   * Returns the latency of every decision recorded so far.
+   *
+   * @return a copy of the latencies in nanoseconds
+   */
+  public long[] getLatencies() {
+    return Arrays.copyOf(this.latencies, this.decisions);
+  }
+
+  /**
+   * Returns a percentile of the decision latencies recorded so far.
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return the latency in nanoseconds, or 0 if no decision was made
+   */
+  public long getLatencyPercentile(double percentile) {
+    if (this.decisions == 0) {
+      return 0;
+    }
+    long[] sorted = Arrays.copyOf(this.latencies, this.decisions);
+    Arrays.sort(sorted);
+    int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+  }
+
+  /**
+   * Prints the outcome, episode length, throughput and decision latency report.
+   */
+  public void print() {
+    int timeouts = this.episodes - this.wins - this.losses;
+    System.out.printf("episodes: %d, won: %d (%.1f%%), lost: %d, cut off: %d%n", this.episodes, this.wins,
+        100.0 * this.wins / Math.max(1, this.episodes), this.losses, timeouts);
+    System.out.printf("mean episode length: %.1f steps%n", (double) this.steps / Math.max(1, this.episodes));
+    System.out.printf("throughput: %.0f steps/s%n", this.steps / (Math.max(1, this.nanos) / 1e9));
+    System.out.printf("decision latency: p50 %.3f ms, p90 %.3f ms, p99 %.3f ms%n",
+        this.getLatencyPercentile(50) / 1e6, this.getLatencyPercentile(90) / 1e6, this.getLatencyPercentile(99) / 1e6);
+  }
+
+  /**
+   * Creates an agent by name.
+   *
+   * @param name one of random, right, mcts, mcts-pruned or qlearning
+   * @return the agent, initialized
+   */
+  static PlanningAgent createAgent(String name) {
+    PlanningAgent agent;
+    switch (name) {
+      case "random":
+        agent = new RandomAgent();
+        break;
+      case "right":
+        agent = new RightAgent();
+        break;
+      case "mcts":
+      case "mcts-pruned":
+        mcts search = new mcts(new KinematicBackend());
+        search.setTimeBudget(Duration.ofMillis(15));
+        search.setPruneFatalActions(name.equals("mcts-pruned"));
+        agent = search;
+        break;
+      case "qlearning":
+        agent = QLearningAgent.loadOrTrain(Paths.get("qlearning.weights"), 0.05, 0.9, 0.4, 2500);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown agent: " + name);
+    }
+    agent.init();
+    return agent;
+  }
+
+  /**
+   * Runs an agent headlessly.
+   *
+   * @param args optionally the agent (random, right, mcts, mcts-pruned or qlearning), the number of episodes, the step
+   *             limit and the seed
+   */
+  public static void main(String[] args) {
+    System.setProperty("java.awt.headless", "true");
+    String name = args.length > 0 ? args[0] : "random";
+    int episodes = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+    int maxSteps = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+    long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+
+    PlanningAgent agent = createAgent(name);
+    HeadlessRunner runner = new HeadlessRunner(agent, maxSteps);
+    runner.run(episodes, seed);
+    runner.print();
+    if (agent instanceof mcts) {
+      mcts search = (mcts) agent;
+      System.out.printf("search: %.0f rollouts/s, %.2f children per node, %.2f fatal actions skipped per rollout%n",
+          search.getRolloutsPerSecond(), search.getMeanBranchingFactor(), search.getPrunedActionsPerRollout());
+    }
+  }
+}
@@ -6,6 +6,7 @@ import core.agents.QLearningAgent;
 import core.agents.RandomAgent;
 import core.agents.mcts;
 import core.agents.RightAgent;
+import core.world.KinematicBackend;
 import core.world.World;
 import java.awt.Canvas;
 import java.awt.Color;
@@ -17,12 +18,11 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferStrategy;
+import java.time.Duration;
 
 import javax.swing.JFrame;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
-import org.dyn4j.dynamics.Body;
-import org.dyn4j.dynamics.BodyFixture;
 import org.dyn4j.dynamics.Force;
 
 /**
@@ -163,12 +163,7 @@ public final class Simulation extends JFrame {
     this.render(g);
     g.setTransform(tx);
 
-    // update the World
-    if (this.planningAgent instanceof mcts) {
-      for (int i = 0; i < 5; i++) {
-        ((mcts) this.planningAgent).doRollout(world);
-      }
-    }
+    // update the World (search-based agents plan within their own budget here)
     // for debugging
     Force actionToBeApplied = this.planningAgent.chooseAction(this.world);
 
@@ -247,45 +242,7 @@ public final class Simulation extends JFrame {
     g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
     g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-    // draw the walls and goal
-    for (Body wall : this.world.walls) {
-      this.render(g, wall, Color.BLACK);
-    }
-    this.render(g, this.world.goal, Color.GREEN);
-
-    // draw the player
-    this.render(g, this.world.player, Color.BLUE);
-
-    // draw the obstacles
-    for (Body obstacle : this.world.obstacles.keySet()) {
-      this.render(g, obstacle, Color.RED);
-    }
-  }
-
-  /**
-   * Renders a body.
-   *
-   * @param g     the graphics context
-   * @param body  the body to render
-   * @param color the color of the body
-   */
-  private void render(Graphics2D g, Body body, Color color) {
-    // save the original transform
-    AffineTransform ot = g.getTransform();
-
-    AffineTransform lt = new AffineTransform();
-    lt.translate(body.getTransform().getTranslationX() * this.scale,
-        body.getTransform().getTranslationY() * this.scale);
-    lt.rotate(body.getTransform().getRotationAngle());
-    g.transform(lt);
-
-    // loop over all the body fixtures for this body
-    for (BodyFixture fixture : body.getFixtures()) {
-      Graphics2DRenderer.render(g, fixture.getShape(), this.scale, color);
-    }
-
-    // set the original transform
-    g.setTransform(ot);
+    Graphics2DRenderer.render(g, this.world, this.scale);
   }
 
   /**
@@ -330,9 +287,11 @@ public final class Simulation extends JFrame {
    */
   public static void main(String[] args) {
     // create and prepare planning agent
-    // PlanningAgent agent = new QLearningAgent(0.05, 0.9, 0.4, 2500);
+    // PlanningAgent agent = QLearningAgent.loadOrTrain(Paths.get("qlearning.weights"), 0.05, 0.9, 0.4, 2500);
     // KeyboardAgent agent = new KeyboardAgent();
-    PlanningAgent agent = new mcts();
+    // PlanningAgent agent = new ParallelMcts(ParallelMcts.Mode.TREE, 200);
+    mcts agent = new mcts(new KinematicBackend());
+    agent.setTimeBudget(Duration.ofMillis(15));
 
     agent.init(); // optional line if an agent needs to prepare itself before being used
 
@@ -0,0 +1,176 @@
+package core.agents;
+
+import core.world.WorldState;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-capacity variant of {@link SearchTree} that many threads can grow and update at once.
+ *
+ * Visit counts and value sums are updated lock-free with atomic arrays. A node is expanded by exactly one thread,
+ * which claims it with a compare-and-set, allocates a contiguous block of children and then publishes the node; other
+ * threads treat it as a leaf until then. Once the arena is full, nodes simply stop being expanded.
+ */
+final class ConcurrentSearchTree {
+
+  static final int NONE = SearchTree.NONE;
+  static final int ROOT = SearchTree.ROOT;
+
+  // expansion states
+  private static final int UNEXPANDED = 0;
+  private static final int EXPANDING = 1;
+  private static final int EXPANDED = 2;
+  private static final int FULL = 3;
+
+  private final AtomicInteger size = new AtomicInteger();
+  private final int[] parent;
+  private final int[] firstChild;
+  private final byte[] childCount;
+  private final byte[] action;
+  private final WorldState[] state;
+  private final AtomicIntegerArray expansion;
+  private final AtomicIntegerArray visits;
+  private final AtomicLongArray valueSum;
+
+  /**
+   * Creates an empty tree.
+   *
+   * @param capacity the maximum number of nodes
+   */
+  ConcurrentSearchTree(int capacity) {
+    this.parent = new int[capacity];
+    this.firstChild = new int[capacity];
+    this.childCount = new byte[capacity];
+    this.action = new byte[capacity];
+    this.state = new WorldState[capacity];
+    this.expansion = new AtomicIntegerArray(capacity);
+    this.visits = new AtomicIntegerArray(capacity);
+    this.valueSum = new AtomicLongArray(capacity);
+  }
+
+  /**
+   * Drops every node and starts a new tree from the given root state. Must not run concurrently with a search.
+   *
+   * @param root the root state
+   */
+  void reset(WorldState root) {
+    int size = this.size.get();
+    Arrays.fill(this.state, 0, size, null);
+    for (int node = 0; node < size; node++) {
+      this.expansion.set(node, UNEXPANDED);
+      this.visits.set(node, 0);
+      this.valueSum.set(node, 0L);
+    }
+    this.size.set(1);
+    this.parent[ROOT] = NONE;
+    this.firstChild[ROOT] = NONE;
+    this.childCount[ROOT] = 0;
+    this.action[ROOT] = (byte) NONE;
+    this.state[ROOT] = root;
+  }
+
+  /**
+   * Claims a node for expansion.
+   *
+   * @param node the node
+   * @return true if the calling thread must now call {@link #expand}; false if the node is taken
+   */
+  boolean tryClaim(int node) {
+    return this.expansion.compareAndSet(node, UNEXPANDED, EXPANDING);
+  }
+
+  /**
+   * Appends and publishes the children of a node previously claimed with {@link #tryClaim(int)}.
+   *
+   * @param node    the parent node
+   * @param actions the action index on each child edge
+   * @param states  the state each action leads to
+   * @param count   the number of children
+   */
+  void expand(int node, byte[] actions, WorldState[] states, int count) {
+    int first;
+    do {
+      first = this.size.get();
+      if (first + count > this.parent.length) {
+        this.expansion.set(node, FULL);
+        return;
+      }
+    } while (!this.size.compareAndSet(first, first + count));
+
+    for (int index = 0; index < count; index++) {
+      int child = first + index;
+      this.parent[child] = node;
+      this.firstChild[child] = NONE;
+      this.childCount[child] = 0;
+      this.action[child] = actions[index];
+      this.state[child] = states[index];
+    }
+    this.firstChild[node] = first;
+    this.childCount[node] = (byte) count;
+
+    // the volatile write publishes everything above to threads that see the node as expanded
+    this.expansion.set(node, EXPANDED);
+  }
+
+  /**
+   * Counts a pending visit and temporarily scores it as a loss, steering other threads to different paths.
+   */
+  void addVirtualLoss(int node, double loss) {
+    this.visits.incrementAndGet(node);
+    this.addValue(node, -loss);
+  }
+
+  /**
+   * Replaces the virtual loss of a pending visit with the real reward.
+   */
+  void backUp(int node, double reward, double loss) {
+    this.addValue(node, reward + loss);
+  }
+
+  private void addValue(int node, double delta) {
+    long current;
+    long next;
+    do {
+      current = this.valueSum.get(node);
+      next = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + delta);
+    } while (!this.valueSum.compareAndSet(node, current, next));
+  }
+
+  int size() {
+    return Math.min(this.size.get(), this.parent.length);
+  }
+
+  boolean isExpanded(int node) {
+    return this.expansion.get(node) == EXPANDED;
+  }
+
+  int parent(int node) {
+    return this.parent[node];
+  }
+
+  int firstChild(int node) {
+    return this.firstChild[node];
+  }
+
+  int childCount(int node) {
+    return this.childCount[node];
+  }
+
+  int action(int node) {
+    return this.action[node];
+  }
+
+  int visits(int node) {
+    return this.visits.get(node);
+  }
+
+  double mean(int node) {
+    return Double.longBitsToDouble(this.valueSum.get(node)) / this.visits.get(node);
+  }
+
+  WorldState state(int node) {
+    return this.state[node];
+  }
+}
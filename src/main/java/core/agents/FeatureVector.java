@@ -0,0 +1,107 @@
+package core.agents;
+
+import core.world.Radar;
+import core.world.VectorWorld;
+import core.world.World;
+
+/**
+ * Reusable buffer holding the features of one world state in a fixed integer layout.
+ *
+ * The player x position and velocity are one-hot bins, so each only sets a single slot, and the radar readings fill
+ * one slot per ray. A linear function over the features is a weight array of {@link #SIZE} slots, and evaluating it is
+ * a dot product over the three active bins and the rays.
+ */
+final class FeatureVector {
+
+  static final int NUM_RAYS = Radar.RAYS;    // number of radar rays
+  static final double LEN_RAYS = Radar.RANGE; // length of each radar ray
+
+  /** Velocities are clamped to this many units per second in either direction before binning */
+  static final int MAX_SPEED = 80;
+
+  private static final int X_BINS = (int) World.WORLD_WIDTH + 1;
+  private static final int VELOCITY_BINS = 2 * MAX_SPEED + 1;
+
+  // slot layout
+  static final int X_OFFSET = 0;
+  static final int VX_OFFSET = X_OFFSET + X_BINS;
+  static final int VY_OFFSET = VX_OFFSET + VELOCITY_BINS;
+  static final int RAY_OFFSET = VY_OFFSET + VELOCITY_BINS;
+  static final int SIZE = RAY_OFFSET + NUM_RAYS;
+
+  /** The slots of the active x, x velocity and y velocity bins */
+  final int[] bins = new int[3];
+
+  private final Radar radar = new Radar(NUM_RAYS, LEN_RAYS);
+
+  /** The distance to the closest body along each ray, divided by the ray length */
+  final float[] rays = this.radar.getReadings();
+
+  /**
+   * Overwrites this buffer with the features of the given state.
+   *
+   * @param state the world state
+   */
+  void extract(World state) {
+    // position and velocity
+    this.bins[0] = X_OFFSET + bin(state.player.getTransform().getTranslationX(), (int) World.WORLD_WIDTH / 2);
+    this.bins[1] = VX_OFFSET + bin(state.player.getLinearVelocity().x, MAX_SPEED);
+    this.bins[2] = VY_OFFSET + bin(state.player.getLinearVelocity().y, MAX_SPEED);
+
+    // radar readings
+    this.radar.scan(state);
+  }
+
+  /**
+   * Overwrites this buffer with the features of one environment of a {@link VectorWorld}, read from its observation.
+   *
+   * @param observations the observations of every environment
+   * @param offset       the index of the first value of the environment's observation
+   */
+  void extract(double[] observations, int offset) {
+    this.bins[0] = X_OFFSET + bin(observations[offset], (int) World.WORLD_WIDTH / 2);
+    this.bins[1] = VX_OFFSET + bin(observations[offset + 2], MAX_SPEED);
+    this.bins[2] = VY_OFFSET + bin(observations[offset + 3], MAX_SPEED);
+    for (int count = 0; count < NUM_RAYS; count++) {
+      this.rays[count] = (float) observations[offset + VectorWorld.RADAR_OFFSET + count];
+    }
+  }
+
+  /**
+   * Truncates a value to an integer, clamps it to [-limit, limit] and shifts it to [0, 2 * limit].
+   */
+  private static int bin(double value, int limit) {
+    return Math.max(-limit, Math.min(limit, (int) value)) + limit;
+  }
+
+  /**
+   * Computes the dot product of these features with a block of weights.
+   *
+   * @param weights the weights
+   * @param offset  the index of the first weight of the block
+   * @return the dot product
+   */
+  double dot(double[] weights, int offset) {
+    double sum = weights[offset + this.bins[0]] + weights[offset + this.bins[1]] + weights[offset + this.bins[2]];
+    for (int count = 0; count < NUM_RAYS; count++) {
+      sum += weights[offset + RAY_OFFSET + count] * this.rays[count];
+    }
+    return sum;
+  }
+
+  /**
+   * Adds these features, multiplied by a scale, to a block of weights.
+   *
+   * @param weights the weights
+   * @param offset  the index of the first weight of the block
+   * @param scale   the factor to multiply each feature by
+   */
+  void addScaled(double[] weights, int offset, double scale) {
+    weights[offset + this.bins[0]] += scale;
+    weights[offset + this.bins[1]] += scale;
+    weights[offset + this.bins[2]] += scale;
+    for (int count = 0; count < NUM_RAYS; count++) {
+      weights[offset + RAY_OFFSET + count] += scale * this.rays[count];
+    }
+  }
+}
@@ -0,0 +1,390 @@
+package core.agents;
+
+import core.world.Dyn4jBackend;
+import core.world.ObstacleTimeline;
+import core.world.PhysicsBackend;
+import core.world.TimelineBackend;
+import core.world.World;
+import core.world.WorldState;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.dyn4j.dynamics.Force;
+
+/**
+ * A Monte Carlo tree search agent that spreads its rollouts over several worker threads.
+ *
+ * In {@link Mode#ROOT} mode every worker grows its own independent {@link mcts} tree from the current state and the
+ * root statistics are merged when choosing an action. In {@link Mode#TREE} mode all workers grow one shared
+ * {@link ConcurrentSearchTree}, using virtual loss to spread out over different paths.
+ *
+ * With {@link #useObstacleTimeline(int)}, the obstacle trajectories are computed once and shared read-only by every
+ * worker, which then only steps the player.
+ *
+ * Every tree or worker draws its rollouts from its own random stream split from one seed, see {@link #setSeed(long)}.
+ */
+public class ParallelMcts implements PlanningAgent {
+
+  /**
+   * How the workers share the search.
+   */
+  public enum Mode {
+    /** Independent trees, merged at decision time */
+    ROOT,
+    /** One shared tree with virtual loss */
+    TREE
+  }
+
+  private static final double VIRTUAL_LOSS = 1.0;
+  private static final int ROLLOUT_DEPTH = 20;
+  private static final int TREE_CAPACITY = 1 << 18;
+
+  private final Mode mode;
+  private final int rolloutsPerDecision;
+  private final double explorationWeight;
+  private final ExecutorService pool;
+
+  // ROOT mode: one independent tree per worker
+  private final mcts[] trees;
+
+  // TREE mode: one shared tree, and per-worker backends
+  private final ConcurrentSearchTree shared;
+  private final Worker[] workers;
+
+  // obstacle trajectories shared by all workers, or null to simulate them in every step
+  private ObstacleTimeline timeline;
+  private int timelineTicks;
+
+  // statistics
+  private long rolloutCount;
+  private long rolloutNanos;
+
+  /**
+   * Creates a new parallel search agent.
+   *
+   * @param mode                how the workers share the search
+   * @param workers             the number of worker threads
+   * @param rolloutsPerDecision the total number of rollouts performed before each action
+   * @param rollouts            creates the rollout backend of each worker
+   */
+  public ParallelMcts(Mode mode, int workers, int rolloutsPerDecision, Supplier<PhysicsBackend> rollouts) {
+    if (workers < 1) {
+      throw new IllegalArgumentException("At least one worker is required");
+    }
+    this.mode = mode;
+    this.rolloutsPerDecision = rolloutsPerDecision;
+    this.explorationWeight = 1.0;
+    this.pool = Executors.newFixedThreadPool(workers, runnable -> {
+      Thread thread = new Thread(runnable, "mcts-worker");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    if (mode == Mode.ROOT) {
+      this.trees = new mcts[workers];
+      for (int index = 0; index < workers; index++) {
+        this.trees[index] = new mcts(rollouts.get());
+      }
+      this.shared = null;
+      this.workers = null;
+    } else {
+      this.trees = null;
+      this.shared = new ConcurrentSearchTree(TREE_CAPACITY);
+      this.workers = new Worker[workers];
+      for (int index = 0; index < workers; index++) {
+        this.workers[index] = new Worker(rollouts.get());
+      }
+    }
+    this.setSeed(new SplittableRandom().nextLong());
+  }
+
+  /**
+   * Creates a new parallel search agent with one worker per available processor.
+   *
+   * @param mode                how the workers share the search
+   * @param rolloutsPerDecision the total number of rollouts performed before each action
+   */
+  public ParallelMcts(Mode mode, int rolloutsPerDecision) {
+    this(mode, Runtime.getRuntime().availableProcessors(), rolloutsPerDecision, Dyn4jBackend::new);
+  }
+
+  /**
+   * Seeds every tree or worker with its own stream split from the given seed. In {@link Mode#ROOT} mode each tree also
+   * runs a fixed share of the rollouts, so the decisions are reproducible. In {@link Mode#TREE} mode they are
+   * reproducible with a single worker; several workers interleave on the shared tree in whatever order the threads
+   * are scheduled.
+   *
+   * @param seed the seed
+   */
+  @Override
+  public void setSeed(long seed) {
+    SplittableRandom seeds = new SplittableRandom(seed);
+    if (this.mode == Mode.ROOT) {
+      for (mcts tree : this.trees) {
+        tree.setSeed(seeds.split().nextLong());
+      }
+    } else {
+      for (Worker worker : this.workers) {
+        worker.rand = seeds.split();
+      }
+    }
+  }
+
+  @Override
+  public Force chooseAction(World state) {
+    if (state.isTerminal()) {
+      throw new RuntimeException("Choose called on a terminal node");
+    }
+    this.search(state);
+
+    int best = this.mode == Mode.ROOT ? this.bestMergedAction() : this.bestSharedAction();
+    return best == SearchTree.NONE ? state.getRandomForce() : World.ACTIONS[best];
+  }
+
+  /**
+   * Runs {@code rolloutsPerDecision} rollouts from the given state across all workers.
+   *
+   * @param state the current state
+   */
+  public void search(World state) {
+    long start = System.nanoTime();
+    List<Callable<Void>> tasks = new ArrayList<>();
+    boolean newTimeline = this.timelineTicks > 0 && this.refreshTimeline(state.checkpoint());
+
+    if (this.mode == Mode.ROOT) {
+      for (int index = 0; index < this.trees.length; index++) {
+        // each tree gets a fixed share, so its rollouts do not depend on how fast the other trees run; the trees are
+        // driven rollout by rollout here rather than through their own search budget
+        mcts tree = this.trees[index];
+        int share = this.rolloutsPerDecision / this.trees.length
+            + (index < this.rolloutsPerDecision % this.trees.length ? 1 : 0);
+        tasks.add(() -> {
+          for (int rollout = 0; rollout < share; rollout++) {
+            tree.doRollout(state);
+          }
+          return null;
+        });
+      }
+    } else {
+      AtomicInteger remaining = new AtomicInteger(this.rolloutsPerDecision);
+      WorldState root = state.checkpoint();
+      if (newTimeline || this.shared.size() == 0 || !this.shared.state(ConcurrentSearchTree.ROOT).equals(root)) {
+        this.shared.reset(root);
+      }
+      for (Worker worker : this.workers) {
+        tasks.add(() -> {
+          while (remaining.getAndDecrement() > 0) {
+            worker.rollout();
+          }
+          return null;
+        });
+      }
+    }
+
+    try {
+      for (Future<Void> future : this.pool.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+
+    this.rolloutCount += this.rolloutsPerDecision;
+    this.rolloutNanos += System.nanoTime() - start;
+  }
+
+  /**
+   * Precomputes the obstacles this many ticks ahead, shared by every worker, so tree edges and rollouts only step the
+   * player. The timeline is recomputed when the searched state leaves its first half.
+   *
+   * @param ticks the number of ticks each timeline covers
+   */
+  public void useObstacleTimeline(int ticks) {
+    this.timelineTicks = ticks;
+  }
+
+  /**
+   * Makes sure the shared timeline covers the given state, handing a new one to every tree or worker.
+   *
+   * @param root the state being searched
+   * @return true if a new timeline was computed
+   */
+  private boolean refreshTimeline(WorldState root) {
+    ObstacleTimeline timeline = ObstacleTimeline.covering(this.timeline, root, this.timelineTicks);
+    if (timeline == this.timeline) {
+      return false;
+    }
+    this.timeline = timeline;
+    if (this.mode == Mode.ROOT) {
+      for (mcts tree : this.trees) {
+        tree.setObstacleTimeline(timeline);
+      }
+    } else {
+      for (Worker worker : this.workers) {
+        worker.model = new TimelineBackend(timeline);
+        worker.rollouts = new TimelineBackend(timeline);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Sums the root statistics of every independent tree and returns the action with the best average reward.
+   */
+  private int bestMergedAction() {
+    int[] visits = new int[World.ACTIONS.length];
+    double[] values = new double[World.ACTIONS.length];
+    for (mcts tree : this.trees) {
+      tree.addRootStatistics(visits, values);
+    }
+    int best = SearchTree.NONE;
+    double bestValue = Double.NEGATIVE_INFINITY;
+    for (int action = 0; action < visits.length; action++) {
+      if (visits[action] > 0 && values[action] / visits[action] >= bestValue) {
+        best = action;
+        bestValue = values[action] / visits[action];
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Returns the action of the root child of the shared tree with the best average reward.
+   */
+  private int bestSharedAction() {
+    ConcurrentSearchTree tree = this.shared;
+    if (!tree.isExpanded(ConcurrentSearchTree.ROOT)) {
+      return SearchTree.NONE;
+    }
+    int best = SearchTree.NONE;
+    double bestValue = Double.NEGATIVE_INFINITY;
+    int first = tree.firstChild(ConcurrentSearchTree.ROOT);
+    for (int child = first; child < first + tree.childCount(ConcurrentSearchTree.ROOT); child++) {
+      if (tree.visits(child) > 0 && tree.mean(child) >= bestValue) {
+        best = tree.action(child);
+        bestValue = tree.mean(child);
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Returns the rollouts completed per second of wall-clock search time, summed over all workers.
+   *
+   * @return the rollout throughput
+   */
+  public double getRolloutsPerSecond() {
+    return this.rolloutNanos == 0 ? 0.0 : this.rolloutCount / (this.rolloutNanos / 1e9);
+  }
+
+  /**
+   * Returns the number of nodes in the search, summed over all trees.
+   *
+   * @return the node count
+   */
+  public int getNodeCount() {
+    if (this.mode == Mode.TREE) {
+      return this.shared.size();
+    }
+    int count = 0;
+    for (mcts tree : this.trees) {
+      count += tree.getNodeCount();
+    }
+    return count;
+  }
+
+  /**
+   * Stops the worker threads.
+   */
+  public void shutdown() {
+    this.pool.shutdownNow();
+  }
+
+  /**
+   * A thread's private state for searching the shared tree.
+   */
+  private final class Worker {
+
+    private PhysicsBackend model = new Dyn4jBackend();
+    private PhysicsBackend rollouts;
+    private SplittableRandom rand;
+    private final byte[] childActions = new byte[World.ACTIONS.length];
+    private final WorldState[] childStates = new WorldState[World.ACTIONS.length];
+
+    private Worker(PhysicsBackend rollouts) {
+      this.rollouts = rollouts;
+    }
+
+    /**
+     * Selects a leaf under virtual loss, expands it, simulates from it and backs the reward up.
+     */
+    private void rollout() {
+      ConcurrentSearchTree tree = ParallelMcts.this.shared;
+      int node = ConcurrentSearchTree.ROOT;
+      tree.addVirtualLoss(node, VIRTUAL_LOSS);
+      while (tree.isExpanded(node)) {
+        node = this.select(tree, node);
+        tree.addVirtualLoss(node, VIRTUAL_LOSS);
+      }
+
+      WorldState state = tree.state(node);
+      if (!state.isTerminal() && tree.tryClaim(node)) {
+        int count = 0;
+        for (int index = 0; index < World.ACTIONS.length; index++) {
+          this.model.load(state);
+          if (this.model.getRemainingSteps() == 0) {
+            // the obstacle timeline ends here: the claim is kept without children, so the node stays a leaf
+            break;
+          }
+          this.model.step(World.ACTIONS[index]);
+          this.childActions[index] = (byte) index;
+          this.childStates[index] = this.model.checkpoint();
+          count++;
+        }
+        if (count > 0) {
+          tree.expand(node, this.childActions, this.childStates, count);
+        }
+      }
+
+      double reward = mcts.simulate(this.rollouts, this.rand, state, ROLLOUT_DEPTH);
+      for (; node != ConcurrentSearchTree.NONE; node = tree.parent(node)) {
+        tree.backUp(node, reward, VIRTUAL_LOSS);
+      }
+    }
+
+    /**
+     * Picks an unvisited child if there is one, otherwise the child with the highest upper confidence bound.
+     */
+    private int select(ConcurrentSearchTree tree, int node) {
+      int first = tree.firstChild(node);
+      int last = first + tree.childCount(node) - 1;
+      for (int child = last; child >= first; child--) {
+        if (tree.visits(child) == 0) {
+          return child;
+        }
+      }
+
+      double logNVertex = Math.log(tree.visits(node));
+      int maxNode = first;
+      double maxUpperConfidence = Double.NEGATIVE_INFINITY;
+      for (int child = first; child <= last; child++) {
+        double confidence = tree.mean(child)
+            + ParallelMcts.this.explorationWeight * Math.sqrt(logNVertex / tree.visits(child));
+        if (confidence > maxUpperConfidence) {
+          maxNode = child;
+          maxUpperConfidence = confidence;
+        }
+      }
+      return maxNode;
+    }
+  }
+}
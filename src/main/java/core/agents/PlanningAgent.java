@@ -23,4 +23,13 @@ public interface PlanningAgent {
     // by default, do nothing
     System.out.println("No extra initialization");
   }
+
+  /**
+   * Seeds any randomness the agent uses to choose actions, so that its choices can be reproduced.
+   *
+   * @param seed the seed
+   */
+  default void setSeed(long seed) {
+    // by default, the agent is deterministic
+  }
 }
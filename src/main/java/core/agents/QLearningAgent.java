@@ -1,20 +1,31 @@
 package core.agents;
 
+import core.world.VectorWorld;
 import core.world.World;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
-import org.dyn4j.dynamics.Body;
-import org.dyn4j.dynamics.BodyFixture;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.dyn4j.dynamics.Force;
-import org.dyn4j.geometry.Ray;
-import org.dyn4j.geometry.Vector2;
-import org.dyn4j.world.DetectFilter;
-import org.dyn4j.world.result.RaycastResult;
 
 /**
  * A planning agent that learns the optimal action policy through approximate Q learning.
+ *
+ * Training can run on several worker threads at once. The workers share one weight array and update it Hogwild-style,
+ * without locks. The three bins of a sample are sparse, but every sample writes all the ray slots of its action's
+ * block, and there are only as many blocks as actions, so workers that take the same action contend on the same ray
+ * slots nearly every step. Some of those read-modify-write updates are lost, which adds noise to stochastic gradient
+ * descent, and the cache lines holding the ray weights move between cores, so extra workers speed training up less
+ * than linearly.
  */
 public class QLearningAgent implements PlanningAgent {
 
@@ -27,10 +38,33 @@ public class QLearningAgent implements PlanningAgent {
   private static final double REWARD_WIN     =  1_000; // reward for reaching the goal state
   private static final double REWARD_LOSE    = -100; // reward for touching an obstacle
 
-  private static final int    NUM_RAYS = 120; // number of radar rays
-  private static final double LEN_RAYS = 15.0; // length of each radar ray
+  /** The number of weights: one per feature slot and action */
+  public static final int WEIGHT_COUNT = World.ACTIONS.length * FeatureVector.SIZE;
 
-  private final Map<String, Double> weights;
+  /**
+   * One block of {@link FeatureVector#SIZE} weights per action, in the order of {@link World#ACTIONS}.
+   */
+  private final double[] weights;
+
+  /** Buffers for scoring states on the calling thread, and for single-threaded training */
+  private final Learner learner = new Learner();
+
+  /** Number of threads training at once */
+  private int workers = 1;
+
+  /** Number of environments trained on in lockstep, or 0 to train one episode at a time per worker */
+  private int environments;
+
+  /** Seed that the world and exploration of each training episode are derived from */
+  private long seed = new SplittableRandom().nextLong();
+
+  /** Past transitions replayed after every step, or null to learn from each transition only once */
+  private ReplayBuffer replay;
+  private int replayBatchSize;
+
+  /** File the weights are saved to during and after training, or null */
+  private Path checkpointFile;
+  private int checkpointInterval;
 
   /**
    * Creates a new Q learning agent from starting weights.
@@ -39,9 +73,12 @@ public class QLearningAgent implements PlanningAgent {
    * @param gamma    the discount factor (between 0 and 1)
    * @param epsilon  the exploitation factor (between 0 and 1); a larger number means exploit the policy more often
    * @param episodes the number of training episodes to conduct before evaluation
-   * @param weights  the starting weights
+   * @param weights  the starting weights, {@link #WEIGHT_COUNT} of them
    */
-  public QLearningAgent(double alpha, double gamma, double epsilon, double episodes, Map<String, Double> weights) {
+  public QLearningAgent(double alpha, double gamma, double epsilon, double episodes, double[] weights) {
+    if (weights.length != WEIGHT_COUNT) {
+      throw new IllegalArgumentException("Expected " + WEIGHT_COUNT + " weights");
+    }
     this.alpha = alpha;
     this.gamma = gamma;
     this.epsilon = epsilon;
@@ -58,155 +95,463 @@ public class QLearningAgent implements PlanningAgent {
    * @param episodes the number of training episodes to conduct before evaluation
    */
   public QLearningAgent(double alpha, double gamma, double epsilon, double episodes) {
-    this(alpha, gamma, epsilon, episodes, new HashMap<>());
+    this(alpha, gamma, epsilon, episodes, new double[WEIGHT_COUNT]);
   }
 
+  /**
+   * Sets the seed of training. Each episode draws its world and its exploration from a random source derived from this
+   * seed and the episode number alone, so an episode is the same whichever worker runs it, given the same weights.
+   *
+   * @param seed the seed
+   */
   @Override
-  public Force chooseAction(World state) {
-    Force[] actions = state.getActions();
-
-    Force bestAction = actions[0];
-    double bestQValue = this.qValue(state, actions[0]);
-    for (int index = 1; index < actions.length; index++) {
-      double candidateQValue = this.qValue(state, actions[index]);
-      if (candidateQValue > bestQValue) {
-        bestQValue = candidateQValue;
-        bestAction = actions[index];
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * Sets the number of threads that run training episodes at the same time.
+   *
+   * @param workers the number of worker threads
+   */
+  public void setWorkers(int workers) {
+    if (workers < 1) {
+      throw new IllegalArgumentException("At least one worker is required");
+    }
+    this.workers = workers;
+  }
+
+  /**
+   * Trains on a batch of environments stepped together by a {@link VectorWorld} instead of one episode at a time per
+   * worker. Each batched step picks an action for every environment from its observation, steps them all on the
+   * fork-join pool, and then learns from each environment's transition on the calling thread. Training ends once the
+   * given number of episodes have finished across all environments.
+   *
+   * @param environments the number of environments, or 0 to train episode by episode
+   */
+  public void setEnvironments(int environments) {
+    if (environments < 0) {
+      throw new IllegalArgumentException("The number of environments cannot be negative");
+    }
+    this.environments = environments;
+  }
+
+  /**
+   * Loads an agent from a weight file if it exists, skipping training. Otherwise creates an agent that trains and then
+   * saves its weights to that file.
+   *
+   * @param file     the weight file
+   * @param alpha    the learning rate (between 0 and 1)
+   * @param gamma    the discount factor (between 0 and 1)
+   * @param epsilon  the exploitation factor (between 0 and 1); a larger number means exploit the policy more often
+   * @param episodes the number of training episodes to conduct if there are no saved weights
+   * @return the agent
+   */
+  public static QLearningAgent loadOrTrain(Path file, double alpha, double gamma, double epsilon, double episodes) {
+    if (Files.exists(file)) {
+      try {
+        return new QLearningAgent(alpha, gamma, epsilon, 0, WeightStore.load(file));
+      } catch (IOException e) {
+        System.out.printf("Could not load weights, training from scratch: %s%n", e.getMessage());
       }
     }
+    QLearningAgent agent = new QLearningAgent(alpha, gamma, epsilon, episodes);
+    agent.setCheckpoint(file, 100);
+    return agent;
+  }
+
+  /**
+   * Saves the weights to a file every given number of training episodes, and once more when training ends.
+   *
+   * @param file     the weight file
+   * @param interval the number of episodes between checkpoints
+   */
+  public void setCheckpoint(Path file, int interval) {
+    this.checkpointFile = file;
+    this.checkpointInterval = interval;
+  }
+
+  /**
+   * Returns the weights, which are live and keep changing while training.
+   *
+   * @return the weights, {@link #WEIGHT_COUNT} of them
+   */
+  public double[] getWeights() {
+    return this.weights;
+  }
+
+  /**
+   * Writes the current weights to the checkpoint file.
+   */
+  private synchronized void checkpoint() {
+    try {
+      WeightStore.save(this.checkpointFile, this.weights);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Stores every training transition in a replay buffer and, after each step, also learns from a mini-batch of
+   * transitions sampled from it.
+   *
+   * @param replay    the replay buffer, which may be shared with other agents or hold transitions from earlier runs
+   * @param batchSize the number of transitions replayed after each step
+   */
+  public void setReplay(ReplayBuffer replay, int batchSize) {
+    this.replay = replay;
+    this.replayBatchSize = batchSize;
+  }
 
-    return bestAction;
+  @Override
+  public Force chooseAction(World state) {
+    Learner learner = this.learner;
+    learner.features.extract(state);
+    this.qValues(learner.features, learner.qValues);
+    return World.ACTIONS[argmax(learner.qValues)];
   }
 
   @Override
   public void init() {
-    for (int episode = 1; episode <= this.episodes; episode++) {
-      System.out.printf("Start episode %d%n", episode);
-      this.train();
+    long start = System.nanoTime();
+    AtomicInteger nextEpisode = new AtomicInteger(1);
+    Learner[] learners = new Learner[this.environments > 0 ? 1 : this.workers];
+    learners[0] = this.learner;
+    for (int index = 1; index < learners.length; index++) {
+      learners[index] = new Learner();
+    }
+
+    if (this.environments > 0) {
+      this.learner.trainBatched(new VectorWorld(this.environments, this.seed));
+    } else if (learners.length == 1) {
+      this.learner.trainAll(nextEpisode);
+    } else {
+      ExecutorService pool = Executors.newFixedThreadPool(learners.length);
+      List<Callable<Void>> tasks = new ArrayList<>();
+      for (Learner learner : learners) {
+        tasks.add(() -> {
+          learner.trainAll(nextEpisode);
+          return null;
+        });
+      }
+      try {
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+          future.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        throw new RuntimeException(e.getCause());
+      } finally {
+        pool.shutdown();
+      }
+    }
+
+    if (this.checkpointFile != null) {
+      this.checkpoint();
+    }
+
+    int episodes = 0;
+    long samples = 0;
+    long replayed = 0;
+    for (Learner learner : learners) {
+      episodes += learner.episodes;
+      samples += learner.samples;
+      replayed += learner.replayed;
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("trained %d episodes (%d samples) on %d workers in %.1fs: %.2f episodes/s, %.0f samples/s%n",
+        episodes, samples, learners.length, seconds, episodes / seconds, samples / seconds);
+    if (replayed > 0) {
+      System.out.printf("replayed %d samples: %.0f replayed samples/s%n", replayed, replayed / seconds);
+    }
+  }
 
-      // print weights
-//      for (String key : this.weights.keySet()) {
-//        System.out.printf("%s: %f,", key, this.weights.get(key));
-//        System.out.println();
-//      }
+  /**
+   * Computes the Q values of every action from the features of one state.
+   *
+   * @param features the features of the state
+   * @param qValues  receives the Q value of each action, in the order of {@link World#ACTIONS}
+   */
+  private void qValues(FeatureVector features, double[] qValues) {
+    for (int index = 0; index < World.ACTIONS.length; index++) {
+      qValues[index] = features.dot(this.weights, index * FeatureVector.SIZE);
     }
   }
 
   /**
-   * Extracts an array of features from the given world state.
+   * Updates the weights from a mini-batch of transitions.
    *
-   * The 1st index in the array is the x position of the player
-   * The 2nd index is the y position of the player
-   * The 3rd index is the x velocity of the player
-   * The 4th index is the y velocity of the player
-   * The remaining indices are the radar readings around the player
+   * The TD errors of every transition are computed first, all against the same weights. Then the changes to the ray
+   * weights are summed into a dense delta array, one block per action, and added to the weights in one pass.
    *
-   * @param state the world state
-   * @return the feature representation
-   */
-  private Map<String, Double> extractFeatures(World state) {
-    Map<String, Double> features = new HashMap<>();
-
-    // position and velocity
-    Vector2 playerPosition = state.player.getWorldCenter();
-    features.put(String.format("player.x.%d", (int) playerPosition.x), 1.0);
-    features.put(String.format("player.vx.%d", (int) state.player.getLinearVelocity().x), 1.0);
-    features.put(String.format("player.vy.%d", (int) state.player.getLinearVelocity().y), 1.0);
-
-    // radar readings
-    for (int count = 0; count < NUM_RAYS; count++) {
-      Ray ray = new Ray(playerPosition, 2 * Math.PI * count / NUM_RAYS);
-      RaycastResult<Body, BodyFixture> result = state.raycastClosest(ray, LEN_RAYS, new DetectFilter<>(true, true, null));
-      if (result == null) {
-        features.put(String.format("ray.%d", count), 1.0);
-      } else {
-        features.put(String.format("ray.%d", count), result.getRaycast().getDistance() / LEN_RAYS);
+   * @param batch the transitions, whose scratch arrays are overwritten
+   */
+  void updateBatch(TransitionBatch batch) {
+    double[] weights = this.weights;
+    int rays = FeatureVector.NUM_RAYS;
+
+    // TD error of each transition
+    for (int slot = 0; slot < batch.size; slot++) {
+      double qValue = dot(weights, batch.actions[slot] * FeatureVector.SIZE, batch.bins, batch.rays, slot);
+      double future = 0.0;
+      if (!batch.done[slot]) {
+        future = Double.NEGATIVE_INFINITY;
+        for (int action = 0; action < World.ACTIONS.length; action++) {
+          future = Math.max(future, dot(weights, action * FeatureVector.SIZE, batch.nextBins, batch.nextRays, slot));
+        }
+      }
+      batch.differences[slot] = batch.rewards[slot] + this.gamma * future - qValue;
+    }
+
+    // accumulate the gradient step of each transition; the three bins are sparse, so they go straight to the weights
+    double[] deltas = batch.deltas;
+    for (int slot = 0; slot < batch.size; slot++) {
+      double scale = this.alpha * batch.differences[slot];
+      int offset = batch.actions[slot] * FeatureVector.SIZE;
+      weights[offset + batch.bins[slot * 3]] += scale;
+      weights[offset + batch.bins[slot * 3 + 1]] += scale;
+      weights[offset + batch.bins[slot * 3 + 2]] += scale;
+      int rayDeltas = batch.actions[slot] * rays;
+      int rayFeatures = slot * rays;
+      for (int ray = 0; ray < rays; ray++) {
+        deltas[rayDeltas + ray] += scale * batch.rays[rayFeatures + ray];
       }
     }
 
-    return features;
+    // apply the ray deltas once per action block
+    for (int action = 0; action < World.ACTIONS.length; action++) {
+      int rayWeights = action * FeatureVector.SIZE + FeatureVector.RAY_OFFSET;
+      int rayDeltas = action * rays;
+      for (int ray = 0; ray < rays; ray++) {
+        weights[rayWeights + ray] += deltas[rayDeltas + ray];
+        deltas[rayDeltas + ray] = 0.0;
+      }
+    }
   }
 
   /**
-   * Computes the Q value of the given state and action pair.
-   * @param state  the world state
-   * @param action the action
-   * @return the Q value
+   * Computes the dot product of the features of one transition in a batch with a block of weights.
    */
-  private double qValue(World state, Force action) {
-    Map<String, Double> features = this.extractFeatures(state);
-
-    double qValue = 0.0;
-    for (Entry<String, Double> pair : features.entrySet()) {
-      qValue += (pair.getValue() * this.weights.getOrDefault(pair.getKey(), 0.0));
+  private static double dot(double[] weights, int offset, int[] bins, float[] rays, int slot) {
+    double sum = weights[offset + bins[slot * 3]] + weights[offset + bins[slot * 3 + 1]]
+        + weights[offset + bins[slot * 3 + 2]];
+    int rayWeights = offset + FeatureVector.RAY_OFFSET;
+    int rayFeatures = slot * FeatureVector.NUM_RAYS;
+    for (int ray = 0; ray < FeatureVector.NUM_RAYS; ray++) {
+      sum += weights[rayWeights + ray] * rays[rayFeatures + ray];
     }
+    return sum;
+  }
 
-//    System.out.printf("Q: %f%n", qValue);
-    return qValue;
+  /**
+   * Returns the index of the largest value, preferring the first on ties.
+   */
+  private static int argmax(double[] values) {
+    int best = 0;
+    for (int index = 1; index < values.length; index++) {
+      if (values[index] > values[best]) {
+        best = index;
+      }
+    }
+    return best;
   }
 
   /**
-   * Performs one episode of training.
+   * The private state of one training thread: its buffers, random source and counters.
    */
-  private void train() {
-    World state = new World();
-    int step = 0;
-    while (!state.isTerminal()) {
-      step++;
+  private final class Learner {
+
+    // reusable buffers, so scoring and training allocate nothing per step
+    private final FeatureVector features = new FeatureVector();
+    private final FeatureVector nextFeatures = new FeatureVector();
+    private final double[] qValues = new double[World.ACTIONS.length];
+    private final double[] nextQValues = new double[World.ACTIONS.length];
+    private SplittableRandom rand;
+
+    // buffers for replayed transitions, allocated on first use
+    private TransitionBatch replayBatch;
+    private int[] replayIndices;
+
+    private int episodes;
+    private long samples;
+    private long replayed;
+
+    /**
+     * Claims and runs training episodes until all of them have been taken.
+     *
+     * @param nextEpisode the number of the next unclaimed episode, shared by all workers
+     */
+    private void trainAll(AtomicInteger nextEpisode) {
+      for (int episode = nextEpisode.getAndIncrement(); episode <= QLearningAgent.this.episodes;
+          episode = nextEpisode.getAndIncrement()) {
+        this.train(episode);
+        QLearningAgent agent = QLearningAgent.this;
+        if (agent.checkpointFile != null && episode % agent.checkpointInterval == 0) {
+          agent.checkpoint();
+        }
+      }
+    }
+
+    /**
+     * Performs one episode of training.
+     *
+     * The features of each state are extracted once, when it is first reached, and used both to score the actions
+     * taken from it and as the next state of the previous sample.
+     *
+     * @param episode the episode number, for reporting
+     */
+    private void train(int episode) {
+      this.rand = new SplittableRandom(QLearningAgent.this.seed + episode * 0x9E3779B97F4A7C15L);
+      World state = new World(this.rand.nextLong());
+      FeatureVector stateFeatures = this.features;
+      FeatureVector nextFeatures = this.nextFeatures;
+      stateFeatures.extract(state);
+      int step = 0;
+      while (!state.isTerminal()) {
+        step++;
 
-      // choose an action, either random (exploration) or from our policy (exploitation)
-      Force[] actions = state.getActions();
-      Force action;
-      if (Math.random() > this.epsilon) {
-        action = actions[(int) (Math.random() * actions.length)];
-      } else {
-        World finalState = state; // <- need this to use lambdas
-        action = Arrays.stream(actions).max((a1, a2) -> (int) (this.qValue(finalState, a1) - this.qValue(
-            finalState, a2))).get();
+        // choose an action, either random (exploration) or from our policy (exploitation)
+        QLearningAgent.this.qValues(stateFeatures, this.qValues);
+        int action;
+        if (this.rand.nextDouble() > QLearningAgent.this.epsilon) {
+          action = this.rand.nextInt(World.ACTIONS.length);
+        } else {
+          action = argmax(this.qValues);
+        }
+
+        // observe the changes and find the next state
+        World nextState = state.generateNextState(World.ACTIONS[action]);
+        nextFeatures.extract(nextState);
+
+        // calculate the reward from the next state
+        double reward = REWARD_NEUTRAL;
+        if (nextState.isWin()) {
+          reward = REWARD_WIN;
+        } else if (nextState.isLose()) {
+          reward = -REWARD_LOSE;
+        }
+
+        // update our weights to reflect a new and improved Q function
+        this.update(stateFeatures, action, reward, nextFeatures, nextState.isTerminal());
+        if (QLearningAgent.this.replay != null) {
+          QLearningAgent.this.replay.add(stateFeatures, action, reward, nextFeatures, nextState.isTerminal());
+          this.replay(QLearningAgent.this.replay, QLearningAgent.this.replayBatchSize);
+        }
+        state = nextState;
+        FeatureVector swap = stateFeatures;
+        stateFeatures = nextFeatures;
+        nextFeatures = swap;
       }
 
-      // observe the changes and find the next state
-      World nextState = state.generateNextState(action);
+      this.episodes++;
+      this.samples += step;
+      System.out.printf("> episode %d took %d samples, %s, final player.x: %d%n", episode, step,
+          state.isWin() ? "won :)" : "lost :(", (int) state.player.getWorldCenter().x);
+    }
 
-      // calculate the reward from the next state
-      double reward = REWARD_NEUTRAL;
-      if (nextState.isWin()) {
-        reward = REWARD_WIN;
-      } else if (nextState.isLose()) {
-        reward = -REWARD_LOSE;
+    /**
+     * Trains on a batch of environments until the configured number of episodes have finished across them.
+     *
+     * The features of every environment are read from its observation once per step and kept as the state features
+     * of its next transition. When an episode ends the observation already shows the next episode, but the transition
+     * is terminal, so those features are only used as the start of the next transition.
+     *
+     * @param world the environments
+     */
+    private void trainBatched(VectorWorld world) {
+      QLearningAgent agent = QLearningAgent.this;
+      int count = world.size();
+      FeatureVector[] stateFeatures = new FeatureVector[count];
+      FeatureVector[] nextFeatures = new FeatureVector[count];
+      double[] observations = world.getObservations();
+      for (int index = 0; index < count; index++) {
+        stateFeatures[index] = new FeatureVector();
+        nextFeatures[index] = new FeatureVector();
+        stateFeatures[index].extract(observations, index * VectorWorld.OBSERVATION_SIZE);
       }
+      int[] actions = new int[count];
+      this.rand = new SplittableRandom(agent.seed);
 
-      // update our weights to reflect a new and improved Q function
-      this.update(state, action, nextState, reward);
-      state = nextState;
+      while (world.getEpisodes() < agent.episodes) {
+        // choose an action per environment, either random (exploration) or from our policy (exploitation)
+        for (int index = 0; index < count; index++) {
+          agent.qValues(stateFeatures[index], this.qValues);
+          if (this.rand.nextDouble() > agent.epsilon) {
+            actions[index] = this.rand.nextInt(World.ACTIONS.length);
+          } else {
+            actions[index] = argmax(this.qValues);
+          }
+        }
+        long finished = world.getEpisodes();
+        world.step(actions);
+
+        // learn from the transition of every environment
+        double[] rewards = world.getRewards();
+        boolean[] done = world.getDone();
+        for (int index = 0; index < count; index++) {
+          nextFeatures[index].extract(observations, index * VectorWorld.OBSERVATION_SIZE);
+          double reward = REWARD_NEUTRAL;
+          if (rewards[index] > 0) {
+            reward = REWARD_WIN;
+          } else if (rewards[index] < 0) {
+            reward = REWARD_LOSE;
+          }
+          this.update(stateFeatures[index], actions[index], reward, nextFeatures[index], done[index]);
+          if (agent.replay != null) {
+            agent.replay.add(stateFeatures[index], actions[index], reward, nextFeatures[index], done[index]);
+            this.replay(agent.replay, agent.replayBatchSize);
+          }
+        }
+        FeatureVector[] swap = stateFeatures;
+        stateFeatures = nextFeatures;
+        nextFeatures = swap;
+
+        this.samples += count;
+        if (agent.checkpointFile != null
+            && world.getEpisodes() / agent.checkpointInterval > finished / agent.checkpointInterval) {
+          agent.checkpoint();
+        }
+      }
+      this.episodes += (int) world.getEpisodes();
+      world.printStatistics();
     }
 
-    System.out.printf("> took %d samples%n", step);
-    if (state.isWin()) {
-      System.out.println("> won :)");
-    } else {
-      System.out.println("> lost :(");
+    /**
+     * Learns from a mini-batch of transitions sampled from the replay buffer.
+     *
+     * @param replay    the replay buffer
+     * @param batchSize the number of transitions to sample
+     */
+    private void replay(ReplayBuffer replay, int batchSize) {
+      if (this.replayBatch == null || this.replayBatch.size != batchSize) {
+        this.replayBatch = new TransitionBatch(batchSize);
+        this.replayIndices = new int[batchSize];
+      }
+      replay.sample(this.rand, this.replayIndices);
+      replay.read(this.replayIndices, this.replayBatch);
+      QLearningAgent.this.updateBatch(this.replayBatch);
+      this.replayed += batchSize;
     }
-    System.out.printf("> final player.x: %d%n", (int) state.player.getWorldCenter().x);
-  }
 
-  /**
-   * Updates the internal weights after one observed sample taken during a training episode.
-   *
-   * @param state     the old state
-   * @param action    the action performed
-   * @param nextState the new state
-   * @param reward    the reward received
-   */
-  private void update(World state, Force action, World nextState, double reward) {
-    Map<String, Double> features = this.extractFeatures(state);
-    double sample = reward
-        + (this.gamma * Arrays.stream(nextState.getActions())
-        .map(nextAction -> this.qValue(nextState, nextAction)).max(Double::compareTo).get());
-    double difference = sample - this.qValue(state, action);
-    for (String key : features.keySet()) {
-      double updatedWeight = this.weights.getOrDefault(key, 0.0) + alpha * difference * features.get(key);
-      this.weights.put(key, updatedWeight);
+    /**
+     * Updates the shared weights after one observed sample.
+     *
+     * @param state     the features of the old state
+     * @param action    the index of the action performed
+     * @param reward    the reward received
+     * @param nextState the features of the new state
+     * @param done      true if the new state is terminal, so there is no future reward to estimate
+     */
+    private void update(FeatureVector state, int action, double reward, FeatureVector nextState, boolean done) {
+      double qValue = state.dot(QLearningAgent.this.weights, action * FeatureVector.SIZE);
+      double sample = reward;
+      if (!done) {
+        QLearningAgent.this.qValues(nextState, this.nextQValues);
+        sample += QLearningAgent.this.gamma * this.nextQValues[argmax(this.nextQValues)];
+      }
+      double difference = sample - qValue;
+      state.addScaled(QLearningAgent.this.weights, action * FeatureVector.SIZE, QLearningAgent.this.alpha * difference);
     }
   }
 }
@@ -1,6 +1,7 @@
 package core.agents;
 
 import core.world.World;
+import java.util.SplittableRandom;
 import org.dyn4j.dynamics.Force;
 
 /**
@@ -8,9 +9,32 @@ import org.dyn4j.dynamics.Force;
  */
 public class RandomAgent implements PlanningAgent {
 
+  private SplittableRandom rand;
+
+  /**
+   * Creates an agent whose choices are reproducible from the given seed.
+   *
+   * @param seed the seed
+   */
+  public RandomAgent(long seed) {
+    this.rand = new SplittableRandom(seed);
+  }
+
+  /**
+   * Creates an agent with an arbitrary seed.
+   */
+  public RandomAgent() {
+    this.rand = new SplittableRandom();
+  }
+
+  @Override
+  public void setSeed(long seed) {
+    this.rand = new SplittableRandom(seed);
+  }
+
   @Override
   public Force chooseAction(World state) {
     Force[] actions = state.getActions();
-    return actions[(int) (Math.random() * actions.length)];
+    return actions[this.rand.nextInt(actions.length)];
   }
 }
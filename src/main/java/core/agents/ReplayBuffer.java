@@ -0,0 +1,219 @@
+package core.agents;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * Fixed-capacity ring of training transitions stored outside the Java heap.
+ *
+ * Each transition holds the features of a state, the index of the action taken, the reward received, the features of
+ * the next state, and whether the episode ended there. Transitions are packed into fixed-size records in one direct or
+ * memory-mapped {@link ByteBuffer}, so holding millions of them costs the garbage collector nothing. Once the ring is
+ * full, each new transition overwrites the oldest one. A buffer opened from a file keeps its transitions across runs.
+ *
+ * Adding and reading are synchronized so that several training threads can share one buffer.
+ */
+public final class ReplayBuffer {
+
+  private static final int MAGIC = 0x48575242; // "HWRB"
+  private static final int VERSION = 1;
+
+  // the header holds the magic number, version, record size, capacity, size and next slot
+  private static final int HEADER_SIZE = 32;
+  private static final int SIZE_OFFSET = 16;
+  private static final int NEXT_OFFSET = 20;
+
+  // record layout
+  private static final int FEATURES_SIZE = 4 * 3 + 4 * FeatureVector.NUM_RAYS;
+  private static final int STATE_OFFSET = 0;
+  private static final int NEXT_STATE_OFFSET = STATE_OFFSET + FEATURES_SIZE;
+  private static final int ACTION_OFFSET = NEXT_STATE_OFFSET + FEATURES_SIZE;
+  private static final int REWARD_OFFSET = ACTION_OFFSET + 4;
+  private static final int DONE_OFFSET = REWARD_OFFSET + 8;
+  static final int RECORD_SIZE = DONE_OFFSET + 8;
+
+  private final ByteBuffer buffer;
+  private final int capacity;
+  private int size;
+  private int next;
+
+  private ReplayBuffer(ByteBuffer buffer, int capacity) {
+    this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    this.capacity = capacity;
+    if (this.buffer.getInt(0) == MAGIC) {
+      checkLayout(this.buffer, capacity);
+      this.size = this.buffer.getInt(SIZE_OFFSET);
+      this.next = this.buffer.getInt(NEXT_OFFSET);
+    } else {
+      this.buffer.putInt(0, MAGIC);
+      this.buffer.putInt(4, VERSION);
+      this.buffer.putInt(8, RECORD_SIZE);
+      this.buffer.putInt(12, capacity);
+      this.writeHeader();
+    }
+  }
+
+  /**
+   * Creates an empty buffer in direct memory.
+   *
+   * @param capacity the maximum number of transitions held
+   */
+  public ReplayBuffer(int capacity) {
+    this(ByteBuffer.allocateDirect(bytes(capacity)), capacity);
+  }
+
+  /**
+   * Opens a buffer backed by a memory-mapped file, creating the file if it does not exist yet. Only a new or empty
+   * file is initialized; any other file must already be a replay buffer, and is checked before it is mapped so that it
+   * is never overwritten or grown.
+   *
+   * @param file     the file
+   * @param capacity the maximum number of transitions held, which must match an existing file
+   * @return the buffer, holding the transitions already in the file
+   * @throws IOException              if the file cannot be read or mapped
+   * @throws IllegalArgumentException if the file is not empty and not a replay buffer of this layout and capacity
+   */
+  public static ReplayBuffer open(Path file, int capacity) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      if (channel.size() > 0) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+          // keep reading until the header is full or the file ends
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+          throw new IllegalArgumentException(file + " is not a replay buffer");
+        }
+        checkLayout(header, capacity);
+      }
+      MappedByteBuffer mapped = channel.map(MapMode.READ_WRITE, 0, bytes(capacity));
+      return new ReplayBuffer(mapped, capacity);
+    }
+  }
+
+  /**
+   * Checks that a header written by a replay buffer matches this version, record layout and the given capacity.
+   */
+  private static void checkLayout(ByteBuffer header, int capacity) {
+    if (header.getInt(4) != VERSION || header.getInt(8) != RECORD_SIZE || header.getInt(12) != capacity) {
+      throw new IllegalArgumentException("Replay buffer has a different layout or capacity");
+    }
+  }
+
+  /**
+   * Returns the number of bytes needed for a buffer of the given capacity.
+   */
+  private static int bytes(int capacity) {
+    long bytes = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+    if (capacity < 1 || bytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Capacity must be between 1 and " + (Integer.MAX_VALUE - HEADER_SIZE)
+          / RECORD_SIZE);
+    }
+    return (int) bytes;
+  }
+
+  /**
+   * Stores a transition, overwriting the oldest one if the buffer is full.
+   *
+   * @param state     the features of the old state
+   * @param action    the index of the action performed
+   * @param reward    the reward received
+   * @param nextState the features of the new state
+   * @param done      true if the new state is terminal
+   */
+  synchronized void add(FeatureVector state, int action, double reward, FeatureVector nextState,
+      boolean done) {
+    int record = HEADER_SIZE + this.next * RECORD_SIZE;
+    this.write(record + STATE_OFFSET, state);
+    this.write(record + NEXT_STATE_OFFSET, nextState);
+    this.buffer.putInt(record + ACTION_OFFSET, action);
+    this.buffer.putDouble(record + REWARD_OFFSET, reward);
+    this.buffer.putInt(record + DONE_OFFSET, done ? 1 : 0);
+
+    this.next = (this.next + 1) % this.capacity;
+    this.size = Math.min(this.size + 1, this.capacity);
+    this.writeHeader();
+  }
+
+  /**
+   * Picks transitions uniformly at random, with replacement.
+   *
+   * @param rand    the random source
+   * @param indices receives the index of each sampled transition
+   */
+  void sample(SplittableRandom rand, int[] indices) {
+    int size = this.size();
+    if (size == 0) {
+      throw new IllegalStateException("Cannot sample an empty replay buffer");
+    }
+    for (int index = 0; index < indices.length; index++) {
+      indices[index] = rand.nextInt(size);
+    }
+  }
+
+  /**
+   * Copies stored transitions into a batch.
+   *
+   * @param indices the transitions, one per slot of the batch
+   * @param batch   receives the transitions
+   */
+  synchronized void read(int[] indices, TransitionBatch batch) {
+    for (int slot = 0; slot < batch.size; slot++) {
+      int record = HEADER_SIZE + indices[slot] * RECORD_SIZE;
+      this.read(record + STATE_OFFSET, batch.bins, batch.rays, slot);
+      this.read(record + NEXT_STATE_OFFSET, batch.nextBins, batch.nextRays, slot);
+      batch.actions[slot] = this.buffer.getInt(record + ACTION_OFFSET);
+      batch.rewards[slot] = this.buffer.getDouble(record + REWARD_OFFSET);
+      batch.done[slot] = this.buffer.getInt(record + DONE_OFFSET) != 0;
+    }
+  }
+
+  public synchronized int size() {
+    return this.size;
+  }
+
+  public int capacity() {
+    return this.capacity;
+  }
+
+  /**
+   * Writes the buffer through to its file, if it has one.
+   */
+  public synchronized void flush() {
+    if (this.buffer instanceof MappedByteBuffer) {
+      ((MappedByteBuffer) this.buffer).force();
+    }
+  }
+
+  private void writeHeader() {
+    this.buffer.putInt(SIZE_OFFSET, this.size);
+    this.buffer.putInt(NEXT_OFFSET, this.next);
+  }
+
+  private void write(int offset, FeatureVector features) {
+    for (int index = 0; index < features.bins.length; index++) {
+      this.buffer.putInt(offset + 4 * index, features.bins[index]);
+    }
+    int rays = offset + 4 * features.bins.length;
+    for (int index = 0; index < FeatureVector.NUM_RAYS; index++) {
+      this.buffer.putFloat(rays + 4 * index, features.rays[index]);
+    }
+  }
+
+  private void read(int offset, int[] bins, float[] rays, int slot) {
+    for (int index = 0; index < 3; index++) {
+      bins[slot * 3 + index] = this.buffer.getInt(offset + 4 * index);
+    }
+    int start = offset + 4 * 3;
+    for (int index = 0; index < FeatureVector.NUM_RAYS; index++) {
+      rays[slot * FeatureVector.NUM_RAYS + index] = this.buffer.getFloat(start + 4 * index);
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package core.agents;
+
+import core.world.WorldState;
+import java.util.Arrays;
+
+/**
+ * Arena holding a Monte Carlo search tree as parallel primitive arrays indexed by node id.
+ *
+ * The children of a node are allocated next to each other, so a node only records its first child and child count.
+ * Each node keeps the index of the action on the edge leading into it and a compact {@link WorldState} snapshot of its
+ * state.
+ */
+final class SearchTree {
+
+  /** Marker for a missing node */
+  static final int NONE = -1;
+
+  /** The root is always the first node allocated */
+  static final int ROOT = 0;
+
+  private int size;
+  private int[] parent;
+  private int[] firstChild;
+  private byte[] childCount;
+  private byte[] action;
+  private int[] visits;
+  private double[] valueSum;
+  private WorldState[] state;
+
+  /** Scratch map from new to old node ids while copying a subtree */
+  private int[] origin = new int[0];
+
+  /**
+   * Creates an empty tree.
+   *
+   * @param capacity the number of nodes to reserve up front
+   */
+  SearchTree(int capacity) {
+    this.parent = new int[capacity];
+    this.firstChild = new int[capacity];
+    this.childCount = new byte[capacity];
+    this.action = new byte[capacity];
+    this.visits = new int[capacity];
+    this.valueSum = new double[capacity];
+    this.state = new WorldState[capacity];
+  }
+
+  /**
+   * Drops every node and starts a new tree from the given root state.
+   *
+   * @param root the root state
+   */
+  void reset(WorldState root) {
+    this.clear();
+    this.allocate(NONE, (byte) NONE, root);
+  }
+
+  /**
+   * Drops every node, releasing their states.
+   */
+  void clear() {
+    Arrays.fill(this.state, 0, this.size, null);
+    this.size = 0;
+  }
+
+  /**
+   * Replaces this tree with a copy of the subtree of another tree, keeping its statistics.
+   *
+   * Nodes are copied breadth-first so that the children of each node stay contiguous.
+   *
+   * @param source    the tree to copy from
+   * @param root      the node of the source tree that becomes the new root
+   * @param rootState the state to give the new root
+   */
+  void copySubtree(SearchTree source, int root, WorldState rootState) {
+    this.reset(rootState);
+    this.mapOrigin(ROOT, root, source);
+    for (int node = 0; node < this.size; node++) {
+      int old = this.origin[node];
+      if (!source.isExpanded(old)) {
+        continue;
+      }
+      int first = this.size;
+      for (int child = source.firstChild[old]; child < source.firstChild[old] + source.childCount[old]; child++) {
+        int copy = this.allocate(node, source.action[child], source.state[child]);
+        this.mapOrigin(copy, child, source);
+      }
+      this.firstChild[node] = first;
+      this.childCount[node] = source.childCount[old];
+    }
+  }
+
+  /**
+   * Records which source node a copied node came from and copies its statistics.
+   */
+  private void mapOrigin(int node, int old, SearchTree source) {
+    if (node == this.origin.length) {
+      this.origin = Arrays.copyOf(this.origin, Math.max(16, node * 2));
+    }
+    this.origin[node] = old;
+    this.visits[node] = source.visits[old];
+    this.valueSum[node] = source.valueSum[old];
+  }
+
+  /**
+   * Appends the children of a node. Must be called at most once per node.
+   *
+   * @param node    the parent node
+   * @param actions the action index on each child edge
+   * @param states  the state each action leads to
+   * @param count   the number of children
+   */
+  void expand(int node, byte[] actions, WorldState[] states, int count) {
+    int first = this.size;
+    for (int index = 0; index < count; index++) {
+      this.allocate(node, actions[index], states[index]);
+    }
+    this.firstChild[node] = first;
+    this.childCount[node] = (byte) count;
+  }
+
+  /**
+   * Allocates a new unexpanded node.
+   */
+  private int allocate(int parent, byte action, WorldState state) {
+    if (this.size == this.parent.length) {
+      int capacity = this.parent.length * 2;
+      this.parent = Arrays.copyOf(this.parent, capacity);
+      this.firstChild = Arrays.copyOf(this.firstChild, capacity);
+      this.childCount = Arrays.copyOf(this.childCount, capacity);
+      this.action = Arrays.copyOf(this.action, capacity);
+      this.visits = Arrays.copyOf(this.visits, capacity);
+      this.valueSum = Arrays.copyOf(this.valueSum, capacity);
+      this.state = Arrays.copyOf(this.state, capacity);
+    }
+    int node = this.size++;
+    this.parent[node] = parent;
+    this.firstChild[node] = NONE;
+    this.childCount[node] = 0;
+    this.action[node] = action;
+    this.visits[node] = 0;
+    this.valueSum[node] = 0.0;
+    this.state[node] = state;
+    return node;
+  }
+
+  /**
+   * Adds one visit with the given reward to a node.
+   */
+  void visit(int node, double reward) {
+    this.visits[node]++;
+    this.valueSum[node] += reward;
+  }
+
+  int size() {
+    return this.size;
+  }
+
+  boolean isExpanded(int node) {
+    return this.firstChild[node] != NONE;
+  }
+
+  int parent(int node) {
+    return this.parent[node];
+  }
+
+  int firstChild(int node) {
+    return this.firstChild[node];
+  }
+
+  int childCount(int node) {
+    return this.childCount[node];
+  }
+
+  int action(int node) {
+    return this.action[node];
+  }
+
+  int visits(int node) {
+    return this.visits[node];
+  }
+
+  double valueSum(int node) {
+    return this.valueSum[node];
+  }
+
+  double mean(int node) {
+    return this.valueSum[node] / this.visits[node];
+  }
+
+  WorldState state(int node) {
+    return this.state[node];
+  }
+
+  /**
+   * Estimates the heap footprint of one node, including its state snapshot.
+   *
+   * @return the approximate number of bytes per node
+   */
+  long bytesPerNode() {
+    // parent, first child, child count, action, visits, value sum and the state reference
+    long arena = 4 + 4 + 1 + 1 + 4 + 8 + 8;
+    if (this.size == 0) {
+      return arena;
+    }
+    int obstacles = this.state[ROOT].getObstacleCount();
+    long header = 16;
+    long snapshot = header + 4 * 8 + 8 + 8 + 5 * 8
+        + 4 * (header + 8L * obstacles)
+        + header + 8L * ((obstacles + 63) / 64);
+    return arena + snapshot;
+  }
+}
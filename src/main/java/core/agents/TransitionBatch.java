@@ -0,0 +1,47 @@
+package core.agents;
+
+import core.world.World;
+
+/**
+ * A mini-batch of transitions laid out as flat primitive arrays, one entry or block of entries per transition, so
+ * that batched updates run as simple loops over contiguous memory.
+ */
+final class TransitionBatch {
+
+  private static final int BINS = 3;
+
+  /** The number of transitions the batch holds */
+  final int size;
+
+  // features of the old and new states: three bins and NUM_RAYS rays per transition
+  final int[] bins;
+  final float[] rays;
+  final int[] nextBins;
+  final float[] nextRays;
+
+  final int[] actions;
+  final double[] rewards;
+  final boolean[] done;
+
+  // scratch for the update: the TD error of each transition and the summed change of each ray weight
+  final double[] differences;
+  final double[] deltas;
+
+  /**
+   * Creates an empty batch.
+   *
+   * @param size the number of transitions
+   */
+  TransitionBatch(int size) {
+    this.size = size;
+    this.bins = new int[size * BINS];
+    this.rays = new float[size * FeatureVector.NUM_RAYS];
+    this.nextBins = new int[size * BINS];
+    this.nextRays = new float[size * FeatureVector.NUM_RAYS];
+    this.actions = new int[size];
+    this.rewards = new double[size];
+    this.done = new boolean[size];
+    this.differences = new double[size];
+    this.deltas = new double[World.ACTIONS.length * FeatureVector.NUM_RAYS];
+  }
+}
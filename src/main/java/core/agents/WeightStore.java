@@ -0,0 +1,117 @@
+package core.agents;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Binary file format for the weights of a {@link QLearningAgent}.
+ *
+ * The file starts with a fixed header: a magic number and format version, then a descriptor of the feature layout the
+ * weights were trained against, the number of weights and a CRC32 of the weight bytes. The weights follow as
+ * little-endian doubles. Loading maps the file into memory, checks the header against the current layout and the
+ * checksum, and copies the weights out in bulk.
+ */
+public final class WeightStore {
+
+  private static final int MAGIC = 0x48575157; // "HWQW"
+  private static final int VERSION = 1;
+
+  // magic, version, actions, feature slots, x/vx/vy/ray offsets, rays, max speed (ints), ray length (double),
+  // weight count (int), checksum (long)
+  private static final int HEADER_SIZE = 10 * 4 + 8 + 4 + 8;
+
+  private WeightStore() {
+  }
+
+  /**
+   * Writes weights to a file, replacing it atomically so that a crash never leaves a half-written file behind.
+   *
+   * @param file    the file
+   * @param weights the weights, in the layout of {@link QLearningAgent#WEIGHT_COUNT}
+   * @throws IOException if the file cannot be written
+   */
+  public static void save(Path file, double[] weights) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 8 * weights.length).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.position(HEADER_SIZE);
+    buffer.asDoubleBuffer().put(weights);
+    buffer.position(HEADER_SIZE);
+    CRC32 crc = new CRC32();
+    crc.update(buffer);
+    writeHeader(buffer, weights.length, crc.getValue());
+
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    Files.write(temporary, buffer.array());
+    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Reads weights from a file.
+   *
+   * @param file the file
+   * @return the weights
+   * @throws IOException if the file cannot be read, is corrupt, or was written for a different feature layout
+   */
+  public static double[] load(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_SIZE) {
+        throw new IOException(file + " is too short to be a weight file");
+      }
+      MappedByteBuffer mapped = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+      ByteBuffer expected = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      writeHeader(expected, QLearningAgent.WEIGHT_COUNT, 0L);
+      if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+        throw new IOException(file + " is not a weight file of version " + VERSION);
+      }
+      for (int offset = 8; offset < HEADER_SIZE - 8; offset += 4) {
+        if (buffer.getInt(offset) != expected.getInt(offset)) {
+          throw new IOException(file + " was written for a different feature layout");
+        }
+      }
+      if (channel.size() != HEADER_SIZE + 8L * QLearningAgent.WEIGHT_COUNT) {
+        throw new IOException(file + " is truncated");
+      }
+
+      buffer.position(HEADER_SIZE);
+      CRC32 crc = new CRC32();
+      crc.update(buffer);
+      if (crc.getValue() != buffer.getLong(HEADER_SIZE - 8)) {
+        throw new IOException(file + " failed its checksum");
+      }
+
+      double[] weights = new double[QLearningAgent.WEIGHT_COUNT];
+      buffer.position(HEADER_SIZE);
+      buffer.asDoubleBuffer().get(weights);
+      return weights;
+    }
+  }
+
+  /**
+   * Writes the header for the current feature layout at the start of a buffer.
+   */
+  private static void writeHeader(ByteBuffer buffer, int count, long checksum) {
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, VERSION);
+    buffer.putInt(8, QLearningAgent.WEIGHT_COUNT / FeatureVector.SIZE);
+    buffer.putInt(12, FeatureVector.SIZE);
+    buffer.putInt(16, FeatureVector.X_OFFSET);
+    buffer.putInt(20, FeatureVector.VX_OFFSET);
+    buffer.putInt(24, FeatureVector.VY_OFFSET);
+    buffer.putInt(28, FeatureVector.RAY_OFFSET);
+    buffer.putInt(32, FeatureVector.NUM_RAYS);
+    buffer.putInt(36, FeatureVector.MAX_SPEED);
+    buffer.putDouble(40, FeatureVector.LEN_RAYS);
+    buffer.putInt(48, count);
+    buffer.putLong(52, checksum);
+  }
+}
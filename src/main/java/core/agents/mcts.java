@@ -1,204 +1,439 @@
 package core.agents;
 
-import java.util.HashMap;
-
 import org.dyn4j.dynamics.Force;
 
-import java.util.List;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.time.Duration;
+import java.util.SplittableRandom;
 
+import core.world.Dyn4jBackend;
+import core.world.ObstacleTimeline;
+import core.world.PhysicsBackend;
+import core.world.TimeToCollision;
+import core.world.TimelineBackend;
 import core.world.World;
+import core.world.WorldState;
 
 public class mcts implements PlanningAgent {
 
-    HashMap<World, Double> reward;
-    HashMap<World, Integer> visited;
-    HashMap<World, List<World>> children;
+    SearchTree tree;
+    SearchTree spare;
     double exploration_weight;
+    PhysicsBackend model;
+    PhysicsBackend rollouts;
+    SplittableRandom rand;
+
+    // search budget per decision; the search stops at whichever limit is hit first
+    long timeBudgetNanos;
+    int iterationBudget;
+    int rolloutDepth;
+
+    // the child of the root whose action was last executed, whose subtree is reused on the next search
+    int pendingChild;
+
+    // how far the observed next state may be from the predicted child for its subtree to be reused
+    static final double REUSE_TOLERANCE = 1e-3;
+
+    // when set, tree edges and rollouts read the obstacles from this timeline instead of simulating them
+    ObstacleTimeline timeline;
+    int timelineTicks;
+
+    // when set, expand() and simulate() skip actions that certainly collide within the step
+    TimeToCollision expandPruning;
+    TimeToCollision rolloutPruning;
+
+    // scratch buffers for expand() and simulate()
+    byte[] childActions;
+    WorldState[] childStates;
+    boolean[] safe;
+
+    // statistics
+    long rolloutCount;
+    long rolloutNanos;
 
     public mcts() {
-        this.reward = new HashMap<>();
-        this.visited = new HashMap<>();
-        this.children = new HashMap<>();
+        this(new Dyn4jBackend());
+    }
+
+    // The backend steps the random rollouts in simulate(); tree edges are always stepped with dyn4j
+    public mcts(PhysicsBackend rollouts) {
+        this.tree = new SearchTree(1024);
+        this.spare = new SearchTree(1024);
+        this.pendingChild = SearchTree.NONE;
         this.exploration_weight = 1.0;
+        this.model = new Dyn4jBackend();
+        this.rollouts = rollouts;
+        this.rand = new SplittableRandom();
+        this.childActions = new byte[World.ACTIONS.length];
+        this.childStates = new WorldState[World.ACTIONS.length];
+        this.safe = new boolean[World.ACTIONS.length];
+        this.timeBudgetNanos = Long.MAX_VALUE;
+        this.iterationBudget = 5;
+        this.rolloutDepth = 20;
     }
 
+    // Searches within the configured budget, then returns the best action found
     public Force chooseAction(World node) {
-        if (node.isTerminal()) {
+        return this.search(node, this.timeBudgetNanos, this.iterationBudget);
+    }
+
+    // Runs as many rollouts as fit in the time budget, then returns the best action found
+    public Force search(World root, Duration budget) {
+        return this.search(root, budget.toNanos(), Integer.MAX_VALUE);
+    }
+
+    // Runs the given number of rollouts, then returns the best action found
+    public Force search(World root, int iterations) {
+        return this.search(root, Long.MAX_VALUE, iterations);
+    }
+
+    Force search(World root, long budgetNanos, int iterations) {
+        if (root.isTerminal()) {
             throw new RuntimeException("Choose called on a terminal node");
-        } else if (!this.children.containsKey(node)) {
+        }
+        long start = System.nanoTime();
+        if (this.timelineTicks > 0) {
+            this.setObstacleTimeline(ObstacleTimeline.covering(this.timeline, root.checkpoint(), this.timelineTicks));
+        }
+        this.reuseSubtree(root);
+        for (int i = 0; i < iterations && System.nanoTime() - start < budgetNanos; i++) {
+            this.doRollout(root);
+        }
+        Force action = this.bestAction(root);
+        this.advance(action);
+        return action;
+    }
+
+    // Tells the agent which action was executed from the current root, so the next search can start from that
+    // child's subtree instead of an empty tree
+    public void advance(Force action) {
+        this.pendingChild = SearchTree.NONE;
+        if (this.tree.size() == 0 || !this.tree.isExpanded(SearchTree.ROOT)) {
+            return;
+        }
+        int first = this.tree.firstChild(SearchTree.ROOT);
+        for (int child = first; child < first + this.tree.childCount(SearchTree.ROOT); child++) {
+            if (World.ACTIONS[this.tree.action(child)] == action) {
+                this.pendingChild = child;
+            }
+        }
+    }
+
+    // Re-roots the tree at the pending child if the given state is the one it predicted,
+    // keeping the statistics of its subtree and releasing everything else
+    void reuseSubtree(World root) {
+        int child = this.pendingChild;
+        this.pendingChild = SearchTree.NONE;
+        if (child == SearchTree.NONE || this.isRoot(root)) {
+            return;
+        }
+        WorldState actual = root.checkpoint();
+        if (!isClose(this.tree.state(child), actual)) {
+            return;
+        }
+        this.spare.copySubtree(this.tree, child, actual);
+        SearchTree released = this.tree;
+        this.tree = this.spare;
+        this.spare = released;
+        this.spare.clear();
+    }
+
+    // Checks if two states have the same status and all bodies within REUSE_TOLERANCE of each other
+    static boolean isClose(WorldState predicted, WorldState actual) {
+        if (predicted.getObstacleCount() != actual.getObstacleCount()
+                || predicted.isWin() != actual.isWin() || predicted.isLose() != actual.isLose()
+                || Math.abs(predicted.getPlayerX() - actual.getPlayerX()) > REUSE_TOLERANCE
+                || Math.abs(predicted.getPlayerY() - actual.getPlayerY()) > REUSE_TOLERANCE
+                || Math.abs(predicted.getPlayerVelocityX() - actual.getPlayerVelocityX()) > REUSE_TOLERANCE
+                || Math.abs(predicted.getPlayerVelocityY() - actual.getPlayerVelocityY()) > REUSE_TOLERANCE) {
+            return false;
+        }
+        for (int index = 0; index < actual.getObstacleCount(); index++) {
+            if (Math.abs(predicted.getObstacleX(index) - actual.getObstacleX(index)) > REUSE_TOLERANCE
+                    || Math.abs(predicted.getObstacleY(index) - actual.getObstacleY(index)) > REUSE_TOLERANCE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns the action leading to the best explored child, or a random one if the state was never searched
+    public Force bestAction(World node) {
+        int best = this.isRoot(node) ? this.getMaxScore(SearchTree.ROOT) : SearchTree.NONE;
+        if (best == SearchTree.NONE) {
             System.out.println("got here");
             return node.getRandomForce();
-        } else {
-            return this.getMaxNodeForce(node, this.getMaxScore(node));
         }
+        return World.ACTIONS[this.tree.action(best)];
+    }
+
+    // Returns true if the tree was grown from the given state
+    public boolean isRoot(World node) {
+        return this.tree.size() > 0 && this.tree.state(SearchTree.ROOT).equals(node.checkpoint());
+    }
+
+    // Limits the wall-clock time spent searching before each decision, lifting the iteration budget so the deadline
+    // alone decides how many rollouts run; call setIterationBudget afterwards to cap both
+    public void setTimeBudget(Duration budget) {
+        this.timeBudgetNanos = budget.toNanos();
+        this.iterationBudget = Integer.MAX_VALUE;
+    }
+
+    // Limits the number of rollouts performed before each decision
+    public void setIterationBudget(int iterations) {
+        this.iterationBudget = iterations;
+    }
+
+    // Makes the rollouts reproducible; with an iteration budget the whole search then is too
+    @Override
+    public void setSeed(long seed) {
+        this.rand = new SplittableRandom(seed);
     }
 
-    public Force getMaxNodeForce(World parentNode, World childNode) {
+    // Precomputes the obstacles this many ticks ahead and steps only the player in expand() and simulate(),
+    // recomputing them when the searched state leaves the first half of the timeline
+    public void useObstacleTimeline(int ticks) {
+        this.timelineTicks = ticks;
+    }
 
-        if (parentNode.generateNextState(World.FORCE_UP).equals(childNode)) {
-            return World.FORCE_UP;
-        } else if (parentNode.generateNextState(World.FORCE_DOWN).equals(childNode)) {
-            return World.FORCE_DOWN;
-        } else if (parentNode.generateNextState(World.FORCE_LEFT).equals(childNode)) {
-            return World.FORCE_LEFT;
-        } else if (parentNode.generateNextState(World.FORCE_RIGHT).equals(childNode)) {
-            return World.FORCE_RIGHT;
-        } else if (parentNode.generateNextState(World.FORCE_NONE).equals(childNode)) {
-            return World.FORCE_NONE;
-        } else {
-            throw new RuntimeException("The equals function isn't working.");
+    // Steps tree edges and rollouts against the given timeline, which may be shared with other searches
+    void setObstacleTimeline(ObstacleTimeline timeline) {
+        if (timeline != this.timeline) {
+            // states of the old tree may not lie on the new timeline
+            this.tree.clear();
+            this.pendingChild = SearchTree.NONE;
+            this.timeline = timeline;
+            this.model = new TimelineBackend(timeline);
+            this.rollouts = new TimelineBackend(timeline);
         }
     }
 
-    // Returns the child node of the node passed in with the highest average reward
-    // per visit
-    // Used as a helper function for choose()
-    public World getMaxScore(World node) {
-        World maxNode = new World();
-        double maxAvgReward = Integer.MIN_VALUE;
-        double childAvgReward;
-        for (World childNode : this.children.get(node)) {
-            if (!this.visited.containsKey(childNode) || this.visited.get(childNode) == 0) {
+    // Skips actions that certainly collide with an obstacle within the next step when expanding nodes and when
+    // choosing random rollout actions, unless every action does
+    public void setPruneFatalActions(boolean prune) {
+        this.expandPruning = prune ? TimeToCollision.oneStep() : null;
+        this.rolloutPruning = prune ? TimeToCollision.oneStep() : null;
+    }
+
+    // Sets the number of random steps taken by each rollout
+    public void setRolloutDepth(int depth) {
+        this.rolloutDepth = depth;
+    }
+
+    // Returns the child of the node passed in with the highest average reward per visit, or NONE
+    // Used as a helper function for bestAction()
+    public int getMaxScore(int node) {
+        if (!this.tree.isExpanded(node)) {
+            return SearchTree.NONE;
+        }
+        int maxNode = SearchTree.NONE;
+        double maxAvgReward = Double.NEGATIVE_INFINITY;
+        int first = this.tree.firstChild(node);
+        for (int child = first; child < first + this.tree.childCount(node); child++) {
+            if (this.tree.visits(child) == 0) {
                 continue;
-            } else {
-                childAvgReward = this.reward.get(childNode) / this.visited.get(childNode);
-                if (childAvgReward >= maxAvgReward) {
-                    maxNode = childNode;
-                    maxAvgReward = childAvgReward;
-                }
+            }
+            double childAvgReward = this.tree.mean(child);
+            if (childAvgReward >= maxAvgReward) {
+                maxNode = child;
+                maxAvgReward = childAvgReward;
             }
         }
-        if (maxNode.equals(new World())) {
-            return null;
-        } else {
-            return maxNode;
-        }
+        return maxNode;
     }
 
     // Make the tree one layer better, train for one iteration
     public void doRollout(World node) {
-        List<World> path = this.select(node);
-        World leaf = path.get(path.size() - 1);
+        long start = System.nanoTime();
+        if (!this.isRoot(node)) {
+            this.tree.reset(node.checkpoint());
+        }
+        int leaf = this.select(SearchTree.ROOT);
         this.expand(leaf);
-        double reward = this.simulate(leaf);
-        this.backPropagate(path, reward);
+        double reward = this.simulate(this.tree.state(leaf));
+        this.backPropagate(leaf, reward);
+        this.rolloutCount++;
+        this.rolloutNanos += System.nanoTime() - start;
     }
 
     // Find an unexplored descendent of node
-    public List<World> select(World node) {
-        List<World> path = new ArrayList<World>();
+    public int select(int node) {
         while (true) {
-            path.add(node);
-            if (!this.children.containsKey(node) || (this.children.get(node)).size() == 0) {
-                return path;
+            if (!this.tree.isExpanded(node)) {
+                return node;
             }
-            List<World> unexploreNodes = this.findUnexplored(node);
-            if (unexploreNodes.size() > 0) {
-                World n = unexploreNodes.remove(unexploreNodes.size() - 1);
-                path.add(n);
-                return path;
+            int unexplored = this.findUnexplored(node);
+            if (unexplored != SearchTree.NONE) {
+                return unexplored;
             }
             node = this.uctSelect(node);
         }
     }
 
-    // Returns the list of nodes that aren't keys already
+    // Returns the last child that has never been visited, or NONE
     // Serves as a helper for select
-    public List<World> findUnexplored(World node) {
-        List<World> unexplored = new ArrayList<World>(this.children.get(node));
-        for (World key : this.children.keySet()) {
-            if (this.children.get(node).contains(key)) {
-                unexplored.remove(key);
+    public int findUnexplored(int node) {
+        int first = this.tree.firstChild(node);
+        for (int child = first + this.tree.childCount(node) - 1; child >= first; child--) {
+            if (this.tree.visits(child) == 0) {
+                return child;
             }
         }
-        return unexplored;
+        return SearchTree.NONE;
     }
 
-    // Update the children hash map with the children of the given node
-    public void expand(World node) {
-        if (this.children.containsKey(node)) {
+    // Allocate the children of the given node, recording the action on each edge
+    public void expand(int node) {
+        WorldState state = this.tree.state(node);
+        if (this.tree.isExpanded(node) || state.isTerminal()) {
             return;
         }
-        this.children.put(node, node.findChildren());
-    }
-
-    // Returns reward of a random simulation to completion of the given node
-    public double simulate(World node) {
-        // while (true) {
-        // if (node.isTerminal()) {
-        // double reward = node.reward();
-        // if (invertReward) {
-        // return 1.0 - reward;
-        // } else {
-        // return reward;
-        // }
-        // }
-        // node = node.findRandomChild();
-        // invertReward = !invertReward;
-        // }
-        World curNode = node;
-        for (int i = 0; i < 20; i++) {
-            if (curNode.isTerminal()) {
-                return curNode.reward();
+        int safeCount = this.expandPruning == null ? World.ACTIONS.length
+                : this.expandPruning.findSafeActions(state, World.ACTIONS, this.safe);
+        boolean prune = safeCount > 0 && safeCount < World.ACTIONS.length;
+        int count = 0;
+        for (int index = 0; index < World.ACTIONS.length; index++) {
+            if (prune && !this.safe[index]) {
+                continue;
             }
-            curNode = curNode.findRandomChild();
+            this.model.load(state);
+            if (this.model.getRemainingSteps() == 0) {
+                // the obstacle timeline ends here, so the node stays a leaf scored by the distance it reached
+                return;
+            }
+            this.model.step(World.ACTIONS[index]);
+            this.childActions[count] = (byte) index;
+            this.childStates[count] = this.model.checkpoint();
+            count++;
         }
-        System.out.println("distance reward: " + Double.toString(this.distanceCalc(node, curNode)));
-        return this.distanceCalc(node, curNode);
+        this.tree.expand(node, this.childActions, this.childStates, count);
     }
 
-    public double distanceCalc(World startNode, World curNode) {
-        double difference = curNode.player.getWorldCenter().x - startNode.player.getWorldCenter().x;
-        double ratio = difference / ((World.WORLD_WIDTH / 2.0) - startNode.player.getWorldCenter().x);
-        return ratio;
+    // Returns reward of a random simulation to completion of the given state
+    public double simulate(WorldState state) {
+        return simulate(this.rollouts, this.rand, state, this.rolloutDepth, this.rolloutPruning, this.safe);
     }
 
-    // Sending the reward back up the ancestors of the leaf
-    public void backPropagate(List<World> path, double reward) {
-        Collections.reverse(path);
-        for (World node : path) {
-            if (!this.visited.containsKey(node)) {
-                this.visited.put(node, 1);
+    // Rolls the state forward with random actions in the given backend instead of building a world per step
+    // Shared with the workers of ParallelMcts, which each bring their own backend and random source
+    static double simulate(PhysicsBackend rollouts, SplittableRandom rand, WorldState state, int depth) {
+        return simulate(rollouts, rand, state, depth, null, null);
+    }
+
+    // Same as above, but if pruning is given, draws each action among those that do not certainly collide
+    // Ends early, scoring the distance covered, if the backend cannot step any further
+    static double simulate(PhysicsBackend rollouts, SplittableRandom rand, WorldState state, int depth,
+            TimeToCollision pruning, boolean[] safe) {
+        rollouts.load(state);
+        WorldState current = state;
+        for (int i = 0; i < depth; i++) {
+            if (rollouts.isTerminal()) {
+                return rollouts.reward();
             }
-            if (!this.reward.containsKey(node)) {
-                this.reward.put(node, reward);
+            if (rollouts.getRemainingSteps() == 0) {
+                break;
             }
-            this.visited.put(node, this.visited.get(node) + 1);
-            this.reward.put(node, this.reward.get(node) + reward);
-            reward = 1.0 - reward;
+            int action = rand.nextInt(World.ACTIONS.length);
+            if (pruning != null) {
+                if (i > 0) {
+                    current = rollouts.checkpoint();
+                }
+                int safeCount = pruning.findSafeActions(current, World.ACTIONS, safe);
+                if (safeCount > 0 && safeCount < World.ACTIONS.length) {
+                    // redraw among the safe actions only
+                    action = nthSafe(safe, rand.nextInt(safeCount));
+                }
+            }
+            rollouts.step(World.ACTIONS[action]);
         }
+        return distanceCalc(state.getPlayerX(), rollouts.getPlayerX());
     }
 
-    public World uctSelect(World node) {
-        for (World childNode : this.children.get(node)) {
-            if (!this.children.containsKey(childNode)) {
-                throw new AssertionError("The children of the given node have not all been expanded.");
+    // Returns the index of the n-th true entry
+    static int nthSafe(boolean[] safe, int n) {
+        for (int index = 0; index < safe.length; index++) {
+            if (safe[index] && n-- == 0) {
+                return index;
             }
         }
-        Double logNVertex = Math.log(this.visited.get(node));
+        throw new IllegalArgumentException("Not enough safe actions");
+    }
 
-        return this.getMaxUCT(logNVertex, node);
+    public static double distanceCalc(double startX, double curX) {
+        double difference = curX - startX;
+        double ratio = difference / ((World.WORLD_WIDTH / 2.0) - startX);
+        return ratio;
+    }
+
+    // Sending the reward back up the ancestors of the leaf
+    public void backPropagate(int leaf, double reward) {
+        for (int node = leaf; node != SearchTree.NONE; node = this.tree.parent(node)) {
+            this.tree.visit(node, reward);
+        }
+    }
 
+    public int uctSelect(int node) {
+        double logNVertex = Math.log(this.tree.visits(node));
+        return this.getMaxUCT(logNVertex, node);
     }
 
-    public World getMaxUCT(Double logNVertex, World node) {
-        World maxNode = new World();
-        double maxUpperConfidence = Integer.MIN_VALUE;
-        for (World childNode : this.children.get(node)) {
-            double childConfidenceVal = (this.reward.get(childNode) / this.reward.get(childNode)) +
-                    this.exploration_weight * Math.sqrt(logNVertex / this.visited.get(childNode));
+    public int getMaxUCT(double logNVertex, int node) {
+        int maxNode = SearchTree.NONE;
+        double maxUpperConfidence = Double.NEGATIVE_INFINITY;
+        int first = this.tree.firstChild(node);
+        for (int child = first; child < first + this.tree.childCount(node); child++) {
+            double childConfidenceVal = this.tree.mean(child) +
+                    this.exploration_weight * Math.sqrt(logNVertex / this.tree.visits(child));
             if (childConfidenceVal > maxUpperConfidence) {
-                maxNode = childNode;
+                maxNode = child;
                 maxUpperConfidence = childConfidenceVal;
             }
         }
-        if (maxNode.equals(new World())) {
-            return null;
-        } else {
-            return maxNode;
+        return maxNode;
+    }
+
+    // Adds the visit count and value sum of each root child to the totals of its action
+    // Used by ParallelMcts to merge independent trees
+    void addRootStatistics(int[] visits, double[] values) {
+        if (this.tree.size() == 0 || !this.tree.isExpanded(SearchTree.ROOT)) {
+            return;
+        }
+        int first = this.tree.firstChild(SearchTree.ROOT);
+        for (int child = first; child < first + this.tree.childCount(SearchTree.ROOT); child++) {
+            visits[this.tree.action(child)] += this.tree.visits(child);
+            values[this.tree.action(child)] += this.tree.valueSum(child);
+        }
+    }
+
+    // Number of nodes currently allocated in the tree
+    public int getNodeCount() {
+        return this.tree.size();
+    }
+
+    // Approximate heap bytes used per node, including its state snapshot
+    public long getBytesPerNode() {
+        return this.tree.bytesPerNode();
+    }
+
+    // Mean number of children per expanded node, after pruning
+    public double getMeanBranchingFactor() {
+        if (this.expandPruning == null || this.expandPruning.getStates() == 0) {
+            return World.ACTIONS.length;
         }
+        return World.ACTIONS.length
+                - (double) this.expandPruning.getPrunedActions() / this.expandPruning.getStates();
+    }
+
+    // Mean number of fatal actions skipped by each rollout
+    public double getPrunedActionsPerRollout() {
+        if (this.rolloutPruning == null || this.rolloutCount == 0) {
+            return 0.0;
+        }
+        return (double) this.rolloutPruning.getPrunedActions() / this.rolloutCount;
+    }
+
+    // Rollouts completed per second of time spent in doRollout
+    public double getRolloutsPerSecond() {
+        return this.rolloutNanos == 0 ? 0.0 : this.rolloutCount / (this.rolloutNanos / 1e9);
     }
 
-}
\ No newline at end of file
+}
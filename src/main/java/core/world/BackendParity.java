@@ -0,0 +1,134 @@
+package core.world;
+
+import java.util.SplittableRandom;
+import org.dyn4j.dynamics.Force;
+
+/**
+ * Compares a candidate {@link PhysicsBackend} against a reference one by replaying the same random action sequences
+ * from the same initial states, and reports how far the trajectories diverge and how fast each backend steps.
+ */
+public final class BackendParity {
+
+  /** Timesteps at which the divergence is reported */
+  private static final int[] CHECKPOINTS = { 1, 10, 50, 100, 200, 500 };
+
+  private final PhysicsBackend reference;
+  private final PhysicsBackend candidate;
+
+  // accumulated over every compared episode
+  private final double[] playerDivergence = new double[CHECKPOINTS.length];
+  private final double[] obstacleDivergence = new double[CHECKPOINTS.length];
+  private final int[] samples = new int[CHECKPOINTS.length];
+  private double maxPlayerDivergence;
+  private int outcomes;
+  private int outcomeMismatches;
+  private long referenceSteps;
+  private long referenceNanos;
+  private long candidateSteps;
+  private long candidateNanos;
+
+  /**
+   * Creates a new comparison.
+   *
+   * @param reference the backend treated as ground truth
+   * @param candidate the backend being measured
+   */
+  public BackendParity(PhysicsBackend reference, PhysicsBackend candidate) {
+    this.reference = reference;
+    this.candidate = candidate;
+  }
+
+  /**
+   * Replays one episode in both backends until either reaches a terminal state or the step limit.
+   *
+   * @param initial the initial state
+   * @param steps   the maximum number of timesteps
+   * @param seed    the seed for the random action sequence
+   */
+  public void compare(WorldState initial, int steps, long seed) {
+    Force[] actions = World.ACTIONS;
+    SplittableRandom random = new SplittableRandom(seed);
+    this.reference.load(initial);
+    this.candidate.load(initial);
+
+    int checkpoint = 0;
+    for (int step = 1; step <= steps; step++) {
+      Force action = actions[random.nextInt(actions.length)];
+
+      long start = System.nanoTime();
+      this.reference.step(action);
+      long middle = System.nanoTime();
+      this.candidate.step(action);
+      long end = System.nanoTime();
+      this.referenceNanos += middle - start;
+      this.candidateNanos += end - middle;
+      this.referenceSteps++;
+      this.candidateSteps++;
+
+      double player = Math.hypot(this.reference.getPlayerX() - this.candidate.getPlayerX(),
+          this.reference.getPlayerY() - this.candidate.getPlayerY());
+      this.maxPlayerDivergence = Math.max(this.maxPlayerDivergence, player);
+      if (checkpoint < CHECKPOINTS.length && step == CHECKPOINTS[checkpoint]) {
+        this.playerDivergence[checkpoint] += player;
+        this.obstacleDivergence[checkpoint] += obstacleDivergence(this.reference.checkpoint(),
+            this.candidate.checkpoint());
+        this.samples[checkpoint]++;
+        checkpoint++;
+      }
+
+      if (this.reference.isTerminal() || this.candidate.isTerminal()) {
+        this.outcomes++;
+        if (this.reference.isWin() != this.candidate.isWin() || this.reference.isLose() != this.candidate.isLose()) {
+          this.outcomeMismatches++;
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the mean distance between corresponding obstacles of two states.
+   */
+  private static double obstacleDivergence(WorldState a, WorldState b) {
+    double total = 0.0;
+    for (int index = 0; index < a.getObstacleCount(); index++) {
+      total += Math.hypot(a.getObstacleX(index) - b.getObstacleX(index), a.getObstacleY(index) - b.getObstacleY(index));
+    }
+    return a.getObstacleCount() == 0 ? 0.0 : total / a.getObstacleCount();
+  }
+
+  /**
+   * Prints the divergence and throughput report.
+   */
+  public void print() {
+    System.out.println("step  player  obstacles  (mean distance from reference)");
+    for (int index = 0; index < CHECKPOINTS.length; index++) {
+      if (this.samples[index] > 0) {
+        System.out.printf("%4d  %6.3f  %9.3f%n", CHECKPOINTS[index],
+            this.playerDivergence[index] / this.samples[index], this.obstacleDivergence[index] / this.samples[index]);
+      }
+    }
+    System.out.printf("max player divergence: %.3f%n", this.maxPlayerDivergence);
+    System.out.printf("terminal outcome mismatches: %d/%d%n", this.outcomeMismatches, this.outcomes);
+    double referenceRate = this.referenceSteps / (this.referenceNanos / 1e9);
+    double candidateRate = this.candidateSteps / (this.candidateNanos / 1e9);
+    System.out.printf("reference: %.0f steps/s, candidate: %.0f steps/s (%.1fx)%n",
+        referenceRate, candidateRate, candidateRate / referenceRate);
+  }
+
+  /**
+   * Runs the parity check of {@link KinematicBackend} against {@link Dyn4jBackend}.
+   *
+   * @param args optionally the number of episodes and the maximum steps per episode
+   */
+  public static void main(String[] args) {
+    int episodes = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+    int steps = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+    BackendParity parity = new BackendParity(new Dyn4jBackend(), new KinematicBackend());
+    for (int episode = 0; episode < episodes; episode++) {
+      parity.compare(World.generateRandomState(new SplittableRandom(episode)), steps, episode);
+    }
+    parity.print();
+  }
+}
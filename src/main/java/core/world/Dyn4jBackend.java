@@ -0,0 +1,79 @@
+package core.world;
+
+import org.dyn4j.dynamics.Force;
+
+/**
+ * Reference backend that runs the full dyn4j simulation of a {@link World}, stepping it in place.
+ */
+public class Dyn4jBackend implements PhysicsBackend {
+
+  private final StepGranularity granularity;
+  private World world;
+
+  /**
+   * Creates a backend integrating with the dyn4j defaults.
+   */
+  public Dyn4jBackend() {
+    this(StepGranularity.FINE);
+  }
+
+  /**
+   * Creates a backend integrating at the given granularity. Each step runs one internal step of that granularity, so a
+   * coarse backend fast-forwards further per step.
+   *
+   * @param granularity the step granularity
+   */
+  public Dyn4jBackend(StepGranularity granularity) {
+    this.granularity = granularity;
+  }
+
+  @Override
+  public void load(WorldState state) {
+    if (this.world == null || this.world.obstacles.size() != state.getObstacleCount()) {
+      this.world = new World(state);
+      this.world.setStepGranularity(this.granularity);
+    } else {
+      this.world.restore(state);
+    }
+  }
+
+  @Override
+  public void step(Force action) {
+    this.world.step(action);
+  }
+
+  @Override
+  public WorldState checkpoint() {
+    return this.world.checkpoint();
+  }
+
+  @Override
+  public double getPlayerX() {
+    return this.world.player.getWorldCenter().x;
+  }
+
+  @Override
+  public double getPlayerY() {
+    return this.world.player.getWorldCenter().y;
+  }
+
+  @Override
+  public double getPlayerVelocityX() {
+    return this.world.player.getLinearVelocity().x;
+  }
+
+  @Override
+  public double getPlayerVelocityY() {
+    return this.world.player.getLinearVelocity().y;
+  }
+
+  @Override
+  public boolean isWin() {
+    return this.world.isWin();
+  }
+
+  @Override
+  public boolean isLose() {
+    return this.world.isLose();
+  }
+}
@@ -0,0 +1,151 @@
+package core.world;
+
+import java.util.SplittableRandom;
+import org.dyn4j.dynamics.Force;
+
+/**
+ * Compares a candidate {@link StepGranularity} against {@link StepGranularity#FINE} by replaying the same random
+ * decisions from the same initial worlds, and reports how far the trajectories diverge and how fast each granularity
+ * covers simulated time.
+ *
+ * Each {@link World#generateNextState} runs one step, so a coarse successor lies further in the future than a fine
+ * one. For every candidate decision the fine world therefore takes as many steps, holding the same action, as fit in
+ * one candidate step, and the two are compared at equal simulated time.
+ */
+public final class GranularityTradeoff {
+
+  /** Candidate decisions at which the divergence is reported */
+  private static final int[] CHECKPOINTS = { 1, 2, 5, 10, 20, 50 };
+
+  private final StepGranularity candidate;
+
+  /** Number of fine steps in one candidate step */
+  private final int ratio;
+
+  // accumulated over every compared episode
+  private final double[] playerDivergence = new double[CHECKPOINTS.length];
+  private final double[] obstacleDivergence = new double[CHECKPOINTS.length];
+  private final int[] samples = new int[CHECKPOINTS.length];
+  private int outcomes;
+  private int outcomeMismatches;
+  private long decisions;
+  private long referenceNanos;
+  private long candidateNanos;
+
+  /**
+   * Creates a new comparison.
+   *
+   * @param candidate the granularity being measured, whose step length must be a whole multiple of the fine one
+   */
+  public GranularityTradeoff(StepGranularity candidate) {
+    double fine = StepGranularity.FINE.getStepFrequency();
+    this.ratio = (int) Math.round(candidate.getStepFrequency() / fine);
+    if (this.ratio < 1 || Math.abs(this.ratio * fine - candidate.getStepFrequency()) > 1e-9) {
+      throw new IllegalArgumentException("The candidate step must be a whole number of fine steps");
+    }
+    this.candidate = candidate;
+  }
+
+  /**
+   * Replays one episode at both granularities until either reaches a terminal state or the decision limit.
+   *
+   * @param initial   the initial state
+   * @param decisions the maximum number of candidate decisions
+   * @param seed      the seed for the random action sequence
+   */
+  public void compare(WorldState initial, int decisions, long seed) {
+    Force[] actions = World.ACTIONS;
+    SplittableRandom random = new SplittableRandom(seed);
+    World reference = new World(initial);
+    World candidate = new World(initial);
+    candidate.setStepGranularity(this.candidate);
+
+    int checkpoint = 0;
+    for (int decision = 1; decision <= decisions; decision++) {
+      Force action = actions[random.nextInt(actions.length)];
+
+      long start = System.nanoTime();
+      for (int step = 0; step < this.ratio && !reference.isTerminal(); step++) {
+        reference = reference.generateNextState(action);
+      }
+      long middle = System.nanoTime();
+      candidate = candidate.generateNextState(action);
+      long end = System.nanoTime();
+      this.referenceNanos += middle - start;
+      this.candidateNanos += end - middle;
+      this.decisions++;
+
+      if (checkpoint < CHECKPOINTS.length && decision == CHECKPOINTS[checkpoint]) {
+        WorldState a = reference.checkpoint();
+        WorldState b = candidate.checkpoint();
+        this.playerDivergence[checkpoint] += Math.hypot(a.getPlayerX() - b.getPlayerX(),
+            a.getPlayerY() - b.getPlayerY());
+        this.obstacleDivergence[checkpoint] += obstacleDivergence(a, b);
+        this.samples[checkpoint]++;
+        checkpoint++;
+      }
+
+      if (reference.isTerminal() || candidate.isTerminal()) {
+        this.outcomes++;
+        if (reference.isWin() != candidate.isWin() || reference.isLose() != candidate.isLose()) {
+          this.outcomeMismatches++;
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the mean distance between corresponding obstacles of two states.
+   */
+  private static double obstacleDivergence(WorldState a, WorldState b) {
+    double total = 0.0;
+    for (int index = 0; index < a.getObstacleCount(); index++) {
+      total += Math.hypot(a.getObstacleX(index) - b.getObstacleX(index), a.getObstacleY(index) - b.getObstacleY(index));
+    }
+    return a.getObstacleCount() == 0 ? 0.0 : total / a.getObstacleCount();
+  }
+
+  /**
+   * Prints the divergence and throughput report.
+   */
+  public void print() {
+    System.out.printf("fine: %s%ncandidate: %s%n", StepGranularity.FINE, this.candidate);
+    System.out.println("decision  time (s)  player  obstacles  (mean distance from fine at equal time)");
+    for (int index = 0; index < CHECKPOINTS.length; index++) {
+      if (this.samples[index] > 0) {
+        System.out.printf("%8d  %8.3f  %6.3f  %9.3f%n", CHECKPOINTS[index],
+            CHECKPOINTS[index] * this.candidate.getStepFrequency(),
+            this.playerDivergence[index] / this.samples[index], this.obstacleDivergence[index] / this.samples[index]);
+      }
+    }
+    System.out.printf("terminal outcome mismatches: %d/%d%n", this.outcomeMismatches, this.outcomes);
+    double simulated = this.decisions * this.candidate.getStepFrequency();
+    double referenceRate = simulated / (this.referenceNanos / 1e9);
+    double candidateRate = simulated / (this.candidateNanos / 1e9);
+    System.out.printf("fine: %.1f simulated s/s, candidate: %.1f simulated s/s (%.1fx)%n",
+        referenceRate, candidateRate, candidateRate / referenceRate);
+  }
+
+  /**
+   * Runs the comparison of {@link StepGranularity#COARSE}, or of a custom granularity, against the fine one.
+   *
+   * @param args optionally the number of episodes, the maximum decisions per episode, and the step frequency, velocity
+   *             iterations and position iterations of the candidate
+   */
+  public static void main(String[] args) {
+    int episodes = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+    int decisions = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    StepGranularity candidate = StepGranularity.COARSE;
+    if (args.length > 4) {
+      candidate = new StepGranularity(Double.parseDouble(args[2]), Integer.parseInt(args[3]),
+          Integer.parseInt(args[4]));
+    }
+
+    GranularityTradeoff tradeoff = new GranularityTradeoff(candidate);
+    for (int episode = 0; episode < episodes; episode++) {
+      tradeoff.compare(World.generateRandomState(new SplittableRandom(episode)), decisions, episode);
+    }
+    tradeoff.print();
+  }
+}
@@ -0,0 +1,285 @@
+package core.world;
+
+import static core.world.World.BODY_RADIUS;
+import static core.world.World.PLAYER_DAMPING;
+import static core.world.World.WORLD_HEIGHT;
+import static core.world.World.WORLD_WIDTH;
+
+import java.util.Arrays;
+import org.dyn4j.dynamics.Force;
+import org.dyn4j.dynamics.Settings;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * Purpose-built backend for the hallway: every body is a unit circle, the walls and goal are axis-aligned, so a step
+ * is a straight integration over primitive arrays followed by circle-vs-wall reflections and elastic circle-vs-circle
+ * impulses between equal masses.
+ *
+ * It mirrors a single dyn4j step (same timestep, player damping, restitution and restitution velocity) but skips the
+ * iterative solver and continuous collision detection, so trajectories drift from {@link Dyn4jBackend} once bodies
+ * start touching. {@link BackendParity} reports how far.
+ */
+public class KinematicBackend implements PhysicsBackend {
+
+  static final double TIME_STEP = Settings.DEFAULT_STEP_FREQUENCY;
+  private static final double RESTITUTION_VELOCITY = Settings.DEFAULT_RESTITUTION_VELOCITY;
+  static final double PLAYER_MASS = Math.PI * BODY_RADIUS * BODY_RADIUS;
+  static final double CONTACT_DISTANCE = 2 * BODY_RADIUS;
+
+  // the walls and goal are one unit thick, so their inner faces sit half a unit inside the hallway bounds
+  static final double MIN_X = -WORLD_WIDTH / 2.0 + 0.5 + BODY_RADIUS;
+  static final double MAX_X = WORLD_WIDTH / 2.0 - 0.5 - BODY_RADIUS;
+  static final double MIN_Y = -WORLD_HEIGHT / 2.0 + 0.5 + BODY_RADIUS;
+  static final double MAX_Y = WORLD_HEIGHT / 2.0 - 0.5 - BODY_RADIUS;
+
+  private double playerX;
+  private double playerY;
+  private double playerVelocityX;
+  private double playerVelocityY;
+
+  private int count;
+  private double[] obstacleX = new double[0];
+  private double[] obstacleY = new double[0];
+  private double[] obstacleVelocityX = new double[0];
+  private double[] obstacleVelocityY = new double[0];
+
+  /** Obstacle indices sorted by x position, kept between steps so re-sorting is nearly linear */
+  private int[] order = new int[0];
+
+  private long[] collisions = new long[0];
+  private boolean won;
+
+  @Override
+  public void load(WorldState state) {
+    this.count = state.getObstacleCount();
+    if (this.obstacleX.length != this.count) {
+      this.obstacleX = new double[this.count];
+      this.obstacleY = new double[this.count];
+      this.obstacleVelocityX = new double[this.count];
+      this.obstacleVelocityY = new double[this.count];
+      this.order = new int[this.count];
+      this.collisions = new long[WorldState.bitsetLength(this.count)];
+    }
+
+    this.playerX = state.getPlayerX();
+    this.playerY = state.getPlayerY();
+    this.playerVelocityX = state.getPlayerVelocityX();
+    this.playerVelocityY = state.getPlayerVelocityY();
+    Arrays.fill(this.collisions, 0L);
+    for (int index = 0; index < this.count; index++) {
+      this.obstacleX[index] = state.getObstacleX(index);
+      this.obstacleY[index] = state.getObstacleY(index);
+      this.obstacleVelocityX[index] = state.getObstacleVelocityX(index);
+      this.obstacleVelocityY[index] = state.getObstacleVelocityY(index);
+      this.order[index] = index;
+      if (state.isCollided(index)) {
+        this.collisions[index >>> 6] |= 1L << index;
+      }
+    }
+    this.won = state.isWin();
+  }
+
+  /**
+   * Replaces the current state with a lone player, without any obstacles.
+   *
+   * @param x         the x position of the player
+   * @param y         the y position of the player
+   * @param velocityX the x velocity of the player
+   * @param velocityY the y velocity of the player
+   * @param won       whether the goal has been touched by the player
+   */
+  void loadPlayer(double x, double y, double velocityX, double velocityY, boolean won) {
+    this.count = 0;
+    this.playerX = x;
+    this.playerY = y;
+    this.playerVelocityX = velocityX;
+    this.playerVelocityY = velocityY;
+    Arrays.fill(this.collisions, 0L);
+    this.won = won;
+  }
+
+  @Override
+  public void step(Force action) {
+    this.stepPlayer(action.getForce());
+    this.stepObstacles();
+    this.collideObstacles();
+
+    // the player loses when touching any obstacle and wins when touching the goal
+    double contact = CONTACT_DISTANCE * CONTACT_DISTANCE;
+    for (int index = 0; index < this.count; index++) {
+      double dx = this.obstacleX[index] - this.playerX;
+      double dy = this.obstacleY[index] - this.playerY;
+      if (dx * dx + dy * dy < contact) {
+        this.collisions[index >>> 6] |= 1L << index;
+      }
+    }
+    if (this.playerX > MAX_X) {
+      this.won = true;
+    }
+  }
+
+  /**
+   * Integrates the force and damping on the player, then moves it and reflects it off the walls.
+   */
+  private void stepPlayer(Vector2 force) {
+    double damping = Math.max(0.0, 1.0 - TIME_STEP * PLAYER_DAMPING);
+    this.playerVelocityX = (this.playerVelocityX + force.x / PLAYER_MASS * TIME_STEP) * damping;
+    this.playerVelocityY = (this.playerVelocityY + force.y / PLAYER_MASS * TIME_STEP) * damping;
+    this.playerX += this.playerVelocityX * TIME_STEP;
+    this.playerY += this.playerVelocityY * TIME_STEP;
+
+    // the goal is on the right, so only the left wall bounces the player horizontally
+    if (this.playerX < MIN_X) {
+      this.playerX = MIN_X;
+      this.playerVelocityX = bounce(this.playerVelocityX, 1);
+    }
+    if (this.playerY < MIN_Y) {
+      this.playerY = MIN_Y;
+      this.playerVelocityY = bounce(this.playerVelocityY, 1);
+    } else if (this.playerY > MAX_Y) {
+      this.playerY = MAX_Y;
+      this.playerVelocityY = bounce(this.playerVelocityY, -1);
+    }
+  }
+
+  /**
+   * Moves every obstacle at its constant velocity and reflects it off the walls and goal.
+   */
+  private void stepObstacles() {
+    for (int index = 0; index < this.count; index++) {
+      double x = this.obstacleX[index] + this.obstacleVelocityX[index] * TIME_STEP;
+      double y = this.obstacleY[index] + this.obstacleVelocityY[index] * TIME_STEP;
+      if (x < MIN_X) {
+        x = MIN_X;
+        this.obstacleVelocityX[index] = bounce(this.obstacleVelocityX[index], 1);
+      } else if (x > MAX_X) {
+        x = MAX_X;
+        this.obstacleVelocityX[index] = bounce(this.obstacleVelocityX[index], -1);
+      }
+      if (y < MIN_Y) {
+        y = MIN_Y;
+        this.obstacleVelocityY[index] = bounce(this.obstacleVelocityY[index], 1);
+      } else if (y > MAX_Y) {
+        y = MAX_Y;
+        this.obstacleVelocityY[index] = bounce(this.obstacleVelocityY[index], -1);
+      }
+      this.obstacleX[index] = x;
+      this.obstacleY[index] = y;
+    }
+  }
+
+  /**
+   * Resolves overlapping obstacle pairs with a sort-and-sweep along the x axis.
+   */
+  private void collideObstacles() {
+    // insertion sort, since the order barely changes between steps
+    for (int i = 1; i < this.count; i++) {
+      int index = this.order[i];
+      double x = this.obstacleX[index];
+      int j = i - 1;
+      while (j >= 0 && this.obstacleX[this.order[j]] > x) {
+        this.order[j + 1] = this.order[j];
+        j--;
+      }
+      this.order[j + 1] = index;
+    }
+
+    for (int i = 0; i < this.count; i++) {
+      int a = this.order[i];
+      for (int j = i + 1; j < this.count; j++) {
+        int b = this.order[j];
+        double dx = this.obstacleX[b] - this.obstacleX[a];
+        if (dx >= CONTACT_DISTANCE) {
+          break;
+        }
+        double dy = this.obstacleY[b] - this.obstacleY[a];
+        double distanceSquared = dx * dx + dy * dy;
+        if (distanceSquared < CONTACT_DISTANCE * CONTACT_DISTANCE && distanceSquared > 0) {
+          this.resolve(a, b, dx, dy, Math.sqrt(distanceSquared));
+        }
+      }
+    }
+  }
+
+  /**
+   * Applies the contact impulse and positional correction between two touching obstacles of equal mass.
+   */
+  private void resolve(int a, int b, double dx, double dy, double distance) {
+    double normalX = dx / distance;
+    double normalY = dy / distance;
+
+    // only push apart bodies that are approaching each other
+    double approach = (this.obstacleVelocityX[b] - this.obstacleVelocityX[a]) * normalX
+        + (this.obstacleVelocityY[b] - this.obstacleVelocityY[a]) * normalY;
+    if (approach < 0) {
+      double impulse = -approach < RESTITUTION_VELOCITY ? approach / 2.0 : approach;
+      this.obstacleVelocityX[a] += impulse * normalX;
+      this.obstacleVelocityY[a] += impulse * normalY;
+      this.obstacleVelocityX[b] -= impulse * normalX;
+      this.obstacleVelocityY[b] -= impulse * normalY;
+    }
+
+    double correction = (CONTACT_DISTANCE - distance) / 2.0;
+    this.obstacleX[a] -= correction * normalX;
+    this.obstacleY[a] -= correction * normalY;
+    this.obstacleX[b] += correction * normalX;
+    this.obstacleY[b] += correction * normalY;
+  }
+
+  /**
+   * Reflects a velocity component moving into a wall, or stops it if it is below the restitution velocity.
+   *
+   * @param velocity the velocity component
+   * @param inward   the sign of the wall normal pointing into the hallway
+   * @return the velocity component after the contact
+   */
+  private static double bounce(double velocity, int inward) {
+    if (velocity * inward >= 0) {
+      // already moving back into the hallway
+      return velocity;
+    }
+    return Math.abs(velocity) < RESTITUTION_VELOCITY ? 0.0 : -velocity;
+  }
+
+  @Override
+  public WorldState checkpoint() {
+    return new WorldState(this.playerX, this.playerY, this.playerVelocityX, this.playerVelocityY,
+        this.obstacleX.clone(), this.obstacleY.clone(), this.obstacleVelocityX.clone(),
+        this.obstacleVelocityY.clone(), this.collisions.clone(), this.won);
+  }
+
+  @Override
+  public double getPlayerX() {
+    return this.playerX;
+  }
+
+  @Override
+  public double getPlayerY() {
+    return this.playerY;
+  }
+
+  @Override
+  public double getPlayerVelocityX() {
+    return this.playerVelocityX;
+  }
+
+  @Override
+  public double getPlayerVelocityY() {
+    return this.playerVelocityY;
+  }
+
+  @Override
+  public boolean isWin() {
+    return this.won;
+  }
+
+  @Override
+  public boolean isLose() {
+    for (long word : this.collisions) {
+      if (word != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
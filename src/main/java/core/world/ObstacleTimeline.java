@@ -0,0 +1,176 @@
+package core.world;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * The positions and velocities of every obstacle at each future tick of an episode, computed once and then shared
+ * read-only, so planners only have to integrate the player.
+ *
+ * Obstacles move independently of the player until it touches one, which ends the episode, so their trajectories can
+ * be precomputed. They are simulated in a dyn4j {@link World} with the player removed, one internal step per tick as
+ * in {@link World#step}, so they match the real episode. Every tick is also indexed in an {@link OccupancyIndex} for
+ * contact queries. A timeline is immutable once built and safe to share between threads.
+ */
+public final class ObstacleTimeline {
+
+  /** Default number of ticks covered: ten seconds at the default step frequency */
+  public static final int DEFAULT_TICKS = 600;
+
+  /** How far obstacles of a snapshot may be from a tick of the timeline for the snapshot to be placed at that tick */
+  private static final double TOLERANCE = 1e-6;
+
+  // indexed by tick, then by obstacle
+  private final double[][] obstacleX;
+  private final double[][] obstacleY;
+  private final double[][] obstacleVelocityX;
+  private final double[][] obstacleVelocityY;
+
+  /** The tick of each x position array, for finding the tick of snapshots that share them */
+  private final Map<double[], Integer> ticks = new IdentityHashMap<>();
+
+  private final OccupancyIndex occupancy;
+
+  /**
+   * Simulates the obstacles of a snapshot forward.
+   *
+   * @param initial the state at tick zero
+   * @param ticks   the number of ticks to cover, including tick zero
+   */
+  public ObstacleTimeline(WorldState initial, int ticks) {
+    if (ticks < 1) {
+      throw new IllegalArgumentException("At least one tick is required");
+    }
+    int count = initial.getObstacleCount();
+    this.obstacleX = new double[ticks][count];
+    this.obstacleY = new double[ticks][count];
+    this.obstacleVelocityX = new double[ticks][count];
+    this.obstacleVelocityY = new double[ticks][count];
+
+    World world = new World(initial);
+    world.removeBody(world.player);
+    for (int tick = 0; tick < ticks; tick++) {
+      if (tick > 0) {
+        world.step(1);
+      }
+      int index = 0;
+      for (Body obstacle : world.obstacles.keySet()) {
+        Vector2 position = obstacle.getTransform().getTranslation();
+        Vector2 velocity = obstacle.getLinearVelocity();
+        this.obstacleX[tick][index] = position.x;
+        this.obstacleY[tick][index] = position.y;
+        this.obstacleVelocityX[tick][index] = velocity.x;
+        this.obstacleVelocityY[tick][index] = velocity.y;
+        index++;
+      }
+      this.ticks.put(this.obstacleX[tick], tick);
+    }
+    this.occupancy = new OccupancyIndex(this);
+  }
+
+  /**
+   * Returns a timeline covering the given state with at least half of its ticks still ahead, reusing the current one
+   * when it does.
+   *
+   * @param current the current timeline, or null
+   * @param state   the state that must be covered
+   * @param ticks   the number of ticks of a new timeline
+   * @return the current timeline or a new one starting at the state
+   */
+  public static ObstacleTimeline covering(ObstacleTimeline current, WorldState state, int ticks) {
+    if (current != null) {
+      int tick = current.tickOf(state);
+      if (tick >= 0 && tick < current.getTickCount() / 2) {
+        return current;
+      }
+    }
+    return new ObstacleTimeline(state, ticks);
+  }
+
+  public int getTickCount() {
+    return this.obstacleX.length;
+  }
+
+  public int getObstacleCount() {
+    return this.obstacleX[0].length;
+  }
+
+  public double getObstacleX(int tick, int index) {
+    return this.obstacleX[tick][index];
+  }
+
+  public double getObstacleY(int tick, int index) {
+    return this.obstacleY[tick][index];
+  }
+
+  /**
+   * Returns the index of where the obstacles are at every tick.
+   *
+   * @return the occupancy index
+   */
+  public OccupancyIndex getOccupancy() {
+    return this.occupancy;
+  }
+
+  /**
+   * Returns the tick at which the obstacles of a snapshot are, or -1 if they do not lie on this timeline.
+   *
+   * Snapshots built from this timeline are found by identity; any other snapshot is compared against every tick.
+   *
+   * @param state the snapshot
+   * @return the tick, or -1
+   */
+  public int tickOf(WorldState state) {
+    Integer shared = this.ticks.get(state.sharedObstacleX());
+    if (shared != null) {
+      return shared;
+    }
+    if (state.getObstacleCount() != this.getObstacleCount()) {
+      return -1;
+    }
+    for (int tick = 0; tick < this.obstacleX.length; tick++) {
+      if (this.matches(tick, state)) {
+        return tick;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Checks if every obstacle of a snapshot is within {@link #TOLERANCE} of its position at the given tick.
+   */
+  private boolean matches(int tick, WorldState state) {
+    double[] x = this.obstacleX[tick];
+    double[] y = this.obstacleY[tick];
+    for (int index = 0; index < x.length; index++) {
+      if (Math.abs(x[index] - state.getObstacleX(index)) > TOLERANCE
+          || Math.abs(y[index] - state.getObstacleY(index)) > TOLERANCE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Marks every obstacle touching the player at the given tick in a collision bitset.
+   *
+   * @param tick       the tick
+   * @param playerX    the x position of the player
+   * @param playerY    the y position of the player
+   * @param collisions the bitset of obstacles the player has collided with
+   */
+  void markContacts(int tick, double playerX, double playerY, long[] collisions) {
+    this.occupancy.markContacts(tick, playerX, playerY, World.BODY_RADIUS, collisions);
+  }
+
+  /**
+   * Creates a snapshot at the given tick, sharing the obstacle arrays of the timeline rather than copying them.
+   */
+  WorldState state(int tick, double playerX, double playerY, double playerVelocityX, double playerVelocityY,
+      long[] collisions, boolean won) {
+    return new WorldState(playerX, playerY, playerVelocityX, playerVelocityY, this.obstacleX[tick],
+        this.obstacleY[tick], this.obstacleVelocityX[tick], this.obstacleVelocityY[tick], collisions, won);
+  }
+}
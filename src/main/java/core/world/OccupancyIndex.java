@@ -0,0 +1,185 @@
+package core.world;
+
+import static core.world.World.BODY_RADIUS;
+import static core.world.World.WORLD_HEIGHT;
+import static core.world.World.WORLD_WIDTH;
+
+/**
+ * A space-time index of where the obstacles of an {@link ObstacleTimeline} are, answering whether a circle is free at a
+ * tick, and when a path first runs into an obstacle, without touching any physics.
+ *
+ * Each tick gets a uniform grid over the hallway. The obstacles of a tick are stored grouped by cell, with their
+ * positions copied next to their indices, so a query only reads the few cells around the circle. Like the timeline,
+ * an index is immutable and safe to share between threads.
+ */
+public final class OccupancyIndex {
+
+  /** Width and height of a grid cell; with unit obstacles, a player-sized query covers at most three cells a side */
+  private static final double CELL_SIZE = 4.0;
+
+  private static final double MIN_X = -WORLD_WIDTH / 2.0;
+  private static final double MIN_Y = -WORLD_HEIGHT / 2.0;
+  private static final int COLUMNS = (int) Math.ceil(WORLD_WIDTH / CELL_SIZE);
+  private static final int ROWS = (int) Math.ceil(WORLD_HEIGHT / CELL_SIZE);
+  private static final int CELLS = COLUMNS * ROWS;
+
+  private final int ticks;
+  private final int count;
+
+  // for each tick: where each cell starts in the tick's obstacle arrays, and the obstacles sorted by cell
+  private final int[][] cellStart;
+  private final int[][] obstacle;
+  private final double[][] obstacleX;
+  private final double[][] obstacleY;
+
+  /**
+   * Indexes every tick of a timeline.
+   *
+   * @param timeline the obstacle timeline
+   */
+  public OccupancyIndex(ObstacleTimeline timeline) {
+    this.ticks = timeline.getTickCount();
+    this.count = timeline.getObstacleCount();
+    this.cellStart = new int[this.ticks][CELLS + 1];
+    this.obstacle = new int[this.ticks][this.count];
+    this.obstacleX = new double[this.ticks][this.count];
+    this.obstacleY = new double[this.ticks][this.count];
+
+    int[] cells = new int[this.count];
+    for (int tick = 0; tick < this.ticks; tick++) {
+      // counting sort of the obstacles by cell
+      int[] start = this.cellStart[tick];
+      for (int index = 0; index < this.count; index++) {
+        cells[index] = cell(column(timeline.getObstacleX(tick, index)), row(timeline.getObstacleY(tick, index)));
+        start[cells[index] + 1]++;
+      }
+      for (int cell = 0; cell < CELLS; cell++) {
+        start[cell + 1] += start[cell];
+      }
+      int[] next = start.clone();
+      for (int index = 0; index < this.count; index++) {
+        int slot = next[cells[index]]++;
+        this.obstacle[tick][slot] = index;
+        this.obstacleX[tick][slot] = timeline.getObstacleX(tick, index);
+        this.obstacleY[tick][slot] = timeline.getObstacleY(tick, index);
+      }
+    }
+  }
+
+  public int getTickCount() {
+    return this.ticks;
+  }
+
+  /**
+   * Checks if a circle overlaps no obstacle at the given tick.
+   *
+   * @param tick   the tick
+   * @param x      the x position of the circle
+   * @param y      the y position of the circle
+   * @param radius the radius of the circle
+   * @return true if the circle is free; false if it overlaps an obstacle
+   */
+  public boolean isFree(int tick, double x, double y, double radius) {
+    return this.firstContact(tick, x, y, radius) < 0;
+  }
+
+  /**
+   * Returns the first tick at which a path of circles overlaps an obstacle.
+   *
+   * @param tick   the tick of the first point of the path
+   * @param pathX  the x position of the circle at each consecutive tick
+   * @param pathY  the y position of the circle at each consecutive tick
+   * @param length the number of points of the path
+   * @param radius the radius of the circle
+   * @return the tick of the first collision, or -1 if the path stays free until it or the index ends
+   */
+  public int earliestCollision(int tick, double[] pathX, double[] pathY, int length, double radius) {
+    int end = Math.min(length, this.ticks - tick);
+    for (int point = 0; point < end; point++) {
+      if (this.firstContact(tick + point, pathX[point], pathY[point], radius) >= 0) {
+        return tick + point;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the index of some obstacle overlapping a circle at the given tick, or -1 if there is none.
+   *
+   * @param tick   the tick
+   * @param x      the x position of the circle
+   * @param y      the y position of the circle
+   * @param radius the radius of the circle
+   * @return the obstacle index, or -1
+   */
+  public int firstContact(int tick, double x, double y, double radius) {
+    double reach = radius + BODY_RADIUS;
+    int[] start = this.cellStart[tick];
+    double[] obstacleX = this.obstacleX[tick];
+    double[] obstacleY = this.obstacleY[tick];
+    int lastColumn = column(x + reach);
+    int lastRow = row(y + reach);
+    for (int row = row(y - reach); row <= lastRow; row++) {
+      for (int column = column(x - reach); column <= lastColumn; column++) {
+        int cell = cell(column, row);
+        for (int slot = start[cell]; slot < start[cell + 1]; slot++) {
+          double dx = obstacleX[slot] - x;
+          double dy = obstacleY[slot] - y;
+          if (dx * dx + dy * dy < reach * reach) {
+            return this.obstacle[tick][slot];
+          }
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Marks every obstacle overlapping a circle at the given tick in a collision bitset.
+   *
+   * @param tick       the tick
+   * @param x          the x position of the circle
+   * @param y          the y position of the circle
+   * @param radius     the radius of the circle
+   * @param collisions the bitset of obstacles the circle overlaps
+   */
+  void markContacts(int tick, double x, double y, double radius, long[] collisions) {
+    double reach = radius + BODY_RADIUS;
+    int[] start = this.cellStart[tick];
+    double[] obstacleX = this.obstacleX[tick];
+    double[] obstacleY = this.obstacleY[tick];
+    int lastColumn = column(x + reach);
+    int lastRow = row(y + reach);
+    for (int row = row(y - reach); row <= lastRow; row++) {
+      for (int column = column(x - reach); column <= lastColumn; column++) {
+        int cell = cell(column, row);
+        for (int slot = start[cell]; slot < start[cell + 1]; slot++) {
+          double dx = obstacleX[slot] - x;
+          double dy = obstacleY[slot] - y;
+          if (dx * dx + dy * dy < reach * reach) {
+            int index = this.obstacle[tick][slot];
+            collisions[index >>> 6] |= 1L << index;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the grid column of an x position, clamped to the hallway.
+   */
+  private static int column(double x) {
+    return Math.max(0, Math.min(COLUMNS - 1, (int) ((x - MIN_X) / CELL_SIZE)));
+  }
+
+  /**
+   * Returns the grid row of a y position, clamped to the hallway.
+   */
+  private static int row(double y) {
+    return Math.max(0, Math.min(ROWS - 1, (int) ((y - MIN_Y) / CELL_SIZE)));
+  }
+
+  private static int cell(int column, int row) {
+    return row * COLUMNS + column;
+  }
+}
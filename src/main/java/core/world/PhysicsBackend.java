@@ -0,0 +1,104 @@
+package core.world;
+
+import org.dyn4j.dynamics.Force;
+
+/**
+ * Steps hallway states forward in time. Planners load a snapshot, roll it forward and read back the outcome, without
+ * caring whether the full dyn4j engine or a specialized integrator does the work.
+ */
+public interface PhysicsBackend {
+
+  /**
+   * Replaces the current state of this backend with the given snapshot.
+   *
+   * @param state the snapshot to load
+   */
+  void load(WorldState state);
+
+  /**
+   * Advances the current state by one timestep after applying the given force to the player.
+   *
+   * @param action the action to perform to the player
+   */
+  void step(Force action);
+
+  /**
+   * Returns how many more times the current state can be stepped. Backends that simulate every body can step forever;
+   * one that replays precomputed obstacles runs out at the end of its data.
+   *
+   * @return the number of steps left, or {@link Integer#MAX_VALUE} if there is no limit
+   */
+  default int getRemainingSteps() {
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * Captures the current state of this backend.
+   *
+   * @return the snapshot
+   */
+  WorldState checkpoint();
+
+  /**
+   * Returns the x position of the player in the current state.
+   *
+   * @return the player x position
+   */
+  double getPlayerX();
+
+  /**
+   * Returns the y position of the player in the current state.
+   *
+   * @return the player y position
+   */
+  double getPlayerY();
+
+  /**
+   * Returns the x velocity of the player in the current state.
+   *
+   * @return the player x velocity
+   */
+  double getPlayerVelocityX();
+
+  /**
+   * Returns the y velocity of the player in the current state.
+   *
+   * @return the player y velocity
+   */
+  double getPlayerVelocityY();
+
+  /**
+   * Checks if the current state is a winning state.
+   *
+   * @return true if the player has collided with the goal; false otherwise
+   */
+  boolean isWin();
+
+  /**
+   * Checks if the current state is a losing state.
+   *
+   * @return true if the player has collided with an obstacle; false otherwise
+   */
+  boolean isLose();
+
+  /**
+   * Checks if the current state is a terminal state.
+   *
+   * @return true if the player has won or lost; false otherwise
+   */
+  default boolean isTerminal() {
+    return this.isWin() || this.isLose();
+  }
+
+  /**
+   * Returns the reward of the current state, which must be terminal.
+   *
+   * @return -1 for a loss, 1 for a win
+   */
+  default double reward() {
+    if (!this.isTerminal()) {
+      throw new RuntimeException("Reward called on nonterminal state");
+    }
+    return this.isLose() ? -1.0 : 1.0;
+  }
+}
@@ -0,0 +1,196 @@
+package core.world;
+
+import static core.world.World.BODY_RADIUS;
+import static core.world.World.WORLD_HEIGHT;
+import static core.world.World.WORLD_WIDTH;
+
+import java.util.Arrays;
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.geometry.Transform;
+
+/**
+ * A ring of evenly spaced rays cast from the player, measuring the distance to the closest obstacle, wall or goal
+ * along each ray.
+ *
+ * Rather than querying the broadphase once per ray, a scan first gathers the obstacles within range of the player
+ * once, then intersects every ray with those circles and with the axis-aligned boxes of the walls and goal
+ * analytically. Like a dyn4j raycast, bodies that contain the player center are not seen. The readings are written to
+ * a reused {@code float[]}, each divided by the range so that 1 means nothing was hit.
+ */
+public class Radar {
+
+  /** Number of rays of the radar the agents observe the hallway with */
+  public static final int RAYS = 120;
+
+  /** Length of each ray of the radar the agents observe the hallway with */
+  public static final double RANGE = 15.0;
+
+  /** Boxes of the walls and goal as {min x, min y, max x, max y}, matching the bodies built by {@link World} */
+  private static final double[][] BOXES = {
+      { -WORLD_WIDTH / 2.0, WORLD_HEIGHT / 2.0 - 0.5, WORLD_WIDTH / 2.0, WORLD_HEIGHT / 2.0 + 0.5 },    // top wall
+      { -WORLD_WIDTH / 2.0, -WORLD_HEIGHT / 2.0 - 0.5, WORLD_WIDTH / 2.0, -WORLD_HEIGHT / 2.0 + 0.5 },  // bottom wall
+      { -WORLD_WIDTH / 2.0 - 0.5, -WORLD_HEIGHT / 2.0, -WORLD_WIDTH / 2.0 + 0.5, WORLD_HEIGHT / 2.0 },  // left wall
+      { WORLD_WIDTH / 2.0 - 0.5, -WORLD_HEIGHT / 2.0, WORLD_WIDTH / 2.0 + 0.5, WORLD_HEIGHT / 2.0 }     // goal
+  };
+
+  private final double range;
+  private final double[] directionX;
+  private final double[] directionY;
+  private final float[] readings;
+
+  // obstacles gathered by the current scan
+  private double[] nearbyX = new double[16];
+  private double[] nearbyY = new double[16];
+  private int nearby;
+
+  /**
+   * Creates a new radar.
+   *
+   * @param rays  the number of rays, the first pointing along the positive x axis and the rest counter-clockwise
+   * @param range the length of each ray
+   */
+  public Radar(int rays, double range) {
+    this.range = range;
+    this.directionX = new double[rays];
+    this.directionY = new double[rays];
+    this.readings = new float[rays];
+    for (int count = 0; count < rays; count++) {
+      double angle = 2 * Math.PI * count / rays;
+      this.directionX[count] = Math.cos(angle);
+      this.directionY[count] = Math.sin(angle);
+    }
+  }
+
+  /**
+   * Scans around the player of a world.
+   *
+   * @param world the world
+   * @return the readings, overwritten by the next scan
+   */
+  public float[] scan(World world) {
+    Transform transform = world.player.getTransform();
+    double x = transform.getTranslationX();
+    double y = transform.getTranslationY();
+    this.nearby = 0;
+    for (Body obstacle : world.obstacles.keySet()) {
+      Transform center = obstacle.getTransform();
+      this.gather(x, y, center.getTranslationX(), center.getTranslationY());
+    }
+    return this.cast(x, y);
+  }
+
+  /**
+   * Scans around the player of a snapshot.
+   *
+   * @param state the snapshot
+   * @return the readings, overwritten by the next scan
+   */
+  public float[] scan(WorldState state) {
+    double x = state.getPlayerX();
+    double y = state.getPlayerY();
+    this.nearby = 0;
+    for (int index = 0; index < state.getObstacleCount(); index++) {
+      this.gather(x, y, state.getObstacleX(index), state.getObstacleY(index));
+    }
+    return this.cast(x, y);
+  }
+
+  /**
+   * Returns the readings of the last scan.
+   *
+   * @return the readings
+   */
+  public float[] getReadings() {
+    return this.readings;
+  }
+
+  /**
+   * Keeps an obstacle if any ray could reach it.
+   */
+  private void gather(double x, double y, double obstacleX, double obstacleY) {
+    double dx = obstacleX - x;
+    double dy = obstacleY - y;
+    double reach = this.range + BODY_RADIUS;
+    if (dx * dx + dy * dy > reach * reach) {
+      return;
+    }
+    if (this.nearby == this.nearbyX.length) {
+      this.nearbyX = Arrays.copyOf(this.nearbyX, this.nearby * 2);
+      this.nearbyY = Arrays.copyOf(this.nearbyY, this.nearby * 2);
+    }
+    this.nearbyX[this.nearby] = obstacleX;
+    this.nearbyY[this.nearby] = obstacleY;
+    this.nearby++;
+  }
+
+  /**
+   * Intersects every ray with the gathered obstacles, the walls and the goal.
+   */
+  private float[] cast(double x, double y) {
+    for (int count = 0; count < this.readings.length; count++) {
+      double dx = this.directionX[count];
+      double dy = this.directionY[count];
+      double closest = this.range;
+      for (int index = 0; index < this.nearby; index++) {
+        closest = Math.min(closest, circle(x - this.nearbyX[index], y - this.nearbyY[index], dx, dy));
+      }
+      for (double[] box : BOXES) {
+        closest = Math.min(closest, box(x, y, dx, dy, box));
+      }
+      this.readings[count] = (float) (closest / this.range);
+    }
+    return this.readings;
+  }
+
+  /**
+   * Returns the distance along a unit ray to a body circle, or infinity if the ray misses it or starts inside it.
+   *
+   * @param offsetX the x offset of the ray start from the circle center
+   * @param offsetY the y offset of the ray start from the circle center
+   */
+  private static double circle(double offsetX, double offsetY, double dx, double dy) {
+    double c = offsetX * offsetX + offsetY * offsetY - BODY_RADIUS * BODY_RADIUS;
+    if (c <= 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double b = offsetX * dx + offsetY * dy;
+    double discriminant = b * b - c;
+    if (b > 0 || discriminant < 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return -b - Math.sqrt(discriminant);
+  }
+
+  /**
+   * Returns the distance along a unit ray to an axis-aligned box, or infinity if the ray misses it or starts inside
+   * it.
+   */
+  private static double box(double x, double y, double dx, double dy, double[] box) {
+    if (x > box[0] && x < box[2] && y > box[1] && y < box[3]) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double near = 0.0;
+    double far = Double.POSITIVE_INFINITY;
+    if (dx == 0) {
+      if (x < box[0] || x > box[2]) {
+        return Double.POSITIVE_INFINITY;
+      }
+    } else {
+      double t1 = (box[0] - x) / dx;
+      double t2 = (box[2] - x) / dx;
+      near = Math.max(near, Math.min(t1, t2));
+      far = Math.min(far, Math.max(t1, t2));
+    }
+    if (dy == 0) {
+      if (y < box[1] || y > box[3]) {
+        return Double.POSITIVE_INFINITY;
+      }
+    } else {
+      double t1 = (box[1] - y) / dy;
+      double t2 = (box[3] - y) / dy;
+      near = Math.max(near, Math.min(t1, t2));
+      far = Math.min(far, Math.max(t1, t2));
+    }
+    return near <= far ? near : Double.POSITIVE_INFINITY;
+  }
+}
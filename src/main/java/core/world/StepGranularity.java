@@ -0,0 +1,78 @@
+package core.world;
+
+import org.dyn4j.dynamics.Settings;
+
+/**
+ * How finely dyn4j integrates a {@link World}: the length of each internal step and the number of solver iterations
+ * spent on it.
+ *
+ * dyn4j runs at most one internal step per {@code update} call, so {@link World#generateNextState} and
+ * {@link World#step} each advance exactly one step of the given length: a coarser granularity covers more simulated
+ * time per decision rather than splitting the same time into fewer steps. The maximum translation per step is scaled
+ * with the step length, so bodies keep their top speed.
+ */
+public final class StepGranularity {
+
+  /** The dyn4j defaults: steps of 1/60 s with the full solver, for the real episode */
+  public static final StepGranularity FINE = new StepGranularity(Settings.DEFAULT_STEP_FREQUENCY,
+      Settings.DEFAULT_SOLVER_ITERATIONS, Settings.DEFAULT_SOLVER_ITERATIONS);
+
+  /** Steps of 1/15 s with half the velocity iterations and one position iteration, for planning rollouts */
+  public static final StepGranularity COARSE = new StepGranularity(1.0 / 15.0,
+      Settings.DEFAULT_SOLVER_ITERATIONS / 2, 1);
+
+  private final double stepFrequency;
+  private final int velocityIterations;
+  private final int positionIterations;
+
+  /**
+   * Creates a new granularity.
+   *
+   * @param stepFrequency      the length of each internal step, in seconds, at most {@link World#TIME_PER_UPDATE} so
+   *                           that every update runs a step
+   * @param velocityIterations the number of velocity solver iterations per step
+   * @param positionIterations the number of position solver iterations per step
+   */
+  public StepGranularity(double stepFrequency, int velocityIterations, int positionIterations) {
+    if (stepFrequency <= 0 || stepFrequency > World.TIME_PER_UPDATE) {
+      throw new IllegalArgumentException("The step frequency must be in (0, " + World.TIME_PER_UPDATE + "]");
+    }
+    if (velocityIterations < 1 || positionIterations < 1) {
+      throw new IllegalArgumentException("At least one solver iteration is required");
+    }
+    this.stepFrequency = stepFrequency;
+    this.velocityIterations = velocityIterations;
+    this.positionIterations = positionIterations;
+  }
+
+  public double getStepFrequency() {
+    return this.stepFrequency;
+  }
+
+  public int getVelocityIterations() {
+    return this.velocityIterations;
+  }
+
+  public int getPositionIterations() {
+    return this.positionIterations;
+  }
+
+  /**
+   * Configures dyn4j settings for this granularity.
+   *
+   * @param settings the settings of a world
+   */
+  void apply(Settings settings) {
+    settings.setStepFrequency(this.stepFrequency);
+    settings.setVelocityConstraintSolverIterations(this.velocityIterations);
+    settings.setPositionConstraintSolverIterations(this.positionIterations);
+    settings.setMaximumTranslation(
+        Settings.DEFAULT_MAXIMUM_TRANSLATION * this.stepFrequency / Settings.DEFAULT_STEP_FREQUENCY);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%.4f s/step, %d velocity and %d position iterations", this.stepFrequency,
+        this.velocityIterations, this.positionIterations);
+  }
+}
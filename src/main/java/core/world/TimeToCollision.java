@@ -0,0 +1,257 @@
+package core.world;
+
+import static core.world.KinematicBackend.CONTACT_DISTANCE;
+import static core.world.KinematicBackend.MAX_X;
+import static core.world.KinematicBackend.MAX_Y;
+import static core.world.KinematicBackend.MIN_X;
+import static core.world.KinematicBackend.MIN_Y;
+import static core.world.KinematicBackend.PLAYER_MASS;
+import static core.world.World.PLAYER_DAMPING;
+
+import java.util.Arrays;
+import org.dyn4j.dynamics.Force;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * Finds the actions that lead to certain death within the next step, by sweeping the player's circle against every
+ * nearby obstacle analytically instead of simulating the step.
+ *
+ * The player is integrated substep by substep as in {@link KinematicBackend}, giving a straight segment per substep,
+ * and each obstacle moves in a straight line at its current velocity. An action is only reported as fatal when the
+ * earliest swept contact is certain under that model: the player touches no wall or goal before it, and the obstacle
+ * touches no wall or other obstacle that could deflect it. Anything else counts as safe, so pruning fatal actions never
+ * removes a way to survive, up to the difference between this model and the real physics.
+ *
+ * Instances keep scratch buffers, so each thread needs its own.
+ */
+public final class TimeToCollision {
+
+  private final double substepLength;
+  private final int substeps;
+
+  // obstacles that can be reached within the horizon, gathered once per state
+  private int nearby;
+  private int[] nearbyIndex = new int[16];
+
+  // statistics
+  private long states;
+  private long prunedActions;
+
+  /**
+   * Creates a predictor looking ahead the given number of substeps.
+   *
+   * @param substepLength the length of each substep, in seconds
+   * @param substeps      the number of substeps in the horizon
+   */
+  public TimeToCollision(double substepLength, int substeps) {
+    this.substepLength = substepLength;
+    this.substeps = substeps;
+  }
+
+  /**
+   * Creates a predictor looking ahead one {@link PhysicsBackend#step}.
+   *
+   * @return the predictor
+   */
+  public static TimeToCollision oneStep() {
+    return new TimeToCollision(KinematicBackend.TIME_STEP, 1);
+  }
+
+  /**
+   * Creates a predictor looking ahead one {@link World#generateNextState} at the given granularity, which runs a
+   * single internal step.
+   *
+   * @param granularity the step granularity of the world
+   * @return the predictor
+   */
+  public static TimeToCollision oneUpdate(StepGranularity granularity) {
+    return new TimeToCollision(granularity.getStepFrequency(), 1);
+  }
+
+  /**
+   * Marks which of the actions are not provably fatal from the given state.
+   *
+   * @param state   the current state, which must not be terminal
+   * @param actions the candidate actions
+   * @param safe    receives, for each action, false if it certainly leads to a collision; true otherwise
+   * @return the number of safe actions
+   */
+  public int findSafeActions(WorldState state, Force[] actions, boolean[] safe) {
+    this.gather(state);
+    int count = 0;
+    for (int index = 0; index < actions.length; index++) {
+      safe[index] = this.timeToCollision(state, actions[index].getForce()) == Double.POSITIVE_INFINITY;
+      if (safe[index]) {
+        count++;
+      }
+    }
+    this.states++;
+    if (count > 0) {
+      this.prunedActions += actions.length - count;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of states whose actions were checked by {@link #findSafeActions}.
+   *
+   * @return the number of states
+   */
+  public long getStates() {
+    return this.states;
+  }
+
+  /**
+   * Returns the number of fatal actions found by {@link #findSafeActions} in states that had a safe action left, which
+   * is how many actions pruning removes.
+   *
+   * @return the number of pruned actions
+   */
+  public long getPrunedActions() {
+    return this.prunedActions;
+  }
+
+  /**
+   * Returns the time until the player certainly collides with an obstacle after taking the given action.
+   *
+   * @param state  the current state, which must not be terminal
+   * @param action the action
+   * @return the time in seconds, or positive infinity if no collision within the horizon is certain
+   */
+  public double timeToCollision(WorldState state, Force action) {
+    this.gather(state);
+    return this.timeToCollision(state, action.getForce());
+  }
+
+  /**
+   * Collects the obstacles close enough to touch the player within the horizon under any action.
+   */
+  private void gather(WorldState state) {
+    double horizon = this.substepLength * this.substeps;
+    double playerSpeed = Math.hypot(state.getPlayerVelocityX(), state.getPlayerVelocityY());
+    double playerReach = (playerSpeed + World.FORCE_MAGNITUDE / PLAYER_MASS * horizon) * horizon;
+    this.nearby = 0;
+    for (int index = 0; index < state.getObstacleCount(); index++) {
+      double obstacleSpeed = Math.hypot(state.getObstacleVelocityX(index), state.getObstacleVelocityY(index));
+      double reach = CONTACT_DISTANCE + playerReach + obstacleSpeed * horizon;
+      double dx = state.getObstacleX(index) - state.getPlayerX();
+      double dy = state.getObstacleY(index) - state.getPlayerY();
+      if (dx * dx + dy * dy < reach * reach) {
+        if (this.nearby == this.nearbyIndex.length) {
+          this.nearbyIndex = Arrays.copyOf(this.nearbyIndex, this.nearby * 2);
+        }
+        this.nearbyIndex[this.nearby++] = index;
+      }
+    }
+  }
+
+  /**
+   * Sweeps the player under the given force against the gathered obstacles.
+   */
+  private double timeToCollision(WorldState state, Vector2 force) {
+    if (this.nearby == 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double dt = this.substepLength;
+    double damping = Math.max(0.0, 1.0 - dt * PLAYER_DAMPING);
+    double x = state.getPlayerX();
+    double y = state.getPlayerY();
+    double velocityX = state.getPlayerVelocityX();
+    double velocityY = state.getPlayerVelocityY();
+    double time = 0.0;
+    for (int substep = 0; substep < this.substeps; substep++) {
+      velocityX = (velocityX + force.x / PLAYER_MASS * dt) * damping;
+      velocityY = (velocityY + force.y / PLAYER_MASS * dt) * damping;
+      double nextX = x + velocityX * dt;
+      double nextY = y + velocityY * dt;
+
+      // the earliest contact along this segment
+      double hit = Double.POSITIVE_INFINITY;
+      int obstacle = -1;
+      for (int slot = 0; slot < this.nearby; slot++) {
+        int index = this.nearbyIndex[slot];
+        double obstacleVelocityX = state.getObstacleVelocityX(index);
+        double obstacleVelocityY = state.getObstacleVelocityY(index);
+        double dx = x - (state.getObstacleX(index) + obstacleVelocityX * time);
+        double dy = y - (state.getObstacleY(index) + obstacleVelocityY * time);
+        double contact = sweep(dx, dy, velocityX - obstacleVelocityX, velocityY - obstacleVelocityY, dt);
+        if (contact < hit) {
+          hit = contact;
+          obstacle = index;
+        }
+      }
+
+      // a wall would bounce the player, after which nothing is certain; the goal ends the episode with a win
+      double wall = Math.min(crossing(x, velocityX, MIN_X, MAX_X, dt), crossing(y, velocityY, MIN_Y, MAX_Y, dt));
+      if (wall < Double.POSITIVE_INFINITY && wall <= hit) {
+        return Double.POSITIVE_INFINITY;
+      }
+      if (obstacle >= 0) {
+        return this.isUndeflected(state, obstacle, time + hit) ? time + hit : Double.POSITIVE_INFINITY;
+      }
+
+      x = nextX;
+      y = nextY;
+      time += dt;
+    }
+    return Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Checks that an obstacle keeps moving in a straight line until the given time, touching neither a wall nor another
+   * obstacle on the way.
+   */
+  private boolean isUndeflected(WorldState state, int obstacle, double time) {
+    double x = state.getObstacleX(obstacle);
+    double y = state.getObstacleY(obstacle);
+    double velocityX = state.getObstacleVelocityX(obstacle);
+    double velocityY = state.getObstacleVelocityY(obstacle);
+    if (Math.min(crossing(x, velocityX, MIN_X, MAX_X, time), crossing(y, velocityY, MIN_Y, MAX_Y, time)) <= time) {
+      return false;
+    }
+    for (int index = 0; index < state.getObstacleCount(); index++) {
+      if (index != obstacle && sweep(x - state.getObstacleX(index), y - state.getObstacleY(index),
+          velocityX - state.getObstacleVelocityX(index), velocityY - state.getObstacleVelocityY(index), time) <= time) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the earliest time in [0, duration] at which two unit circles, offset by (dx, dy) with relative velocity
+   * (vx, vy), touch, or positive infinity if they do not.
+   */
+  private static double sweep(double dx, double dy, double vx, double vy, double duration) {
+    double c = dx * dx + dy * dy - CONTACT_DISTANCE * CONTACT_DISTANCE;
+    if (c < 0) {
+      return 0.0;
+    }
+    double a = vx * vx + vy * vy;
+    double b = dx * vx + dy * vy;
+    if (a == 0 || b >= 0) {
+      // not approaching
+      return Double.POSITIVE_INFINITY;
+    }
+    double discriminant = b * b - a * c;
+    if (discriminant < 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double time = (-b - Math.sqrt(discriminant)) / a;
+    return time <= duration ? time : Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Returns the time in [0, duration] at which a coordinate moving at a constant velocity leaves [min, max], or
+   * positive infinity if it stays inside.
+   */
+  private static double crossing(double position, double velocity, double min, double max, double duration) {
+    double time = Double.POSITIVE_INFINITY;
+    if (velocity < 0) {
+      time = (min - position) / velocity;
+    } else if (velocity > 0) {
+      time = (max - position) / velocity;
+    }
+    return time <= duration ? Math.max(0.0, time) : Double.POSITIVE_INFINITY;
+  }
+}
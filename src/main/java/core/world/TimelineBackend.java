@@ -0,0 +1,124 @@
+package core.world;
+
+import java.util.Arrays;
+import org.dyn4j.dynamics.Force;
+
+/**
+ * Backend that reads the obstacles from a shared {@link ObstacleTimeline} instead of simulating them, so a step only
+ * integrates the player, the same way {@link KinematicBackend} does, and tests it against the obstacles at the next
+ * tick.
+ *
+ * Snapshots taken from this backend share their obstacle arrays with the timeline, so they cost a few doubles each
+ * and are placed back on the timeline by identity when loaded. Snapshots from elsewhere must lie on the timeline.
+ * Stepping past the last tick of the timeline is an error; callers check {@link #getRemainingSteps()} first.
+ */
+public class TimelineBackend implements PhysicsBackend {
+
+  private final ObstacleTimeline timeline;
+
+  /** Integrates the player alone */
+  private final KinematicBackend player = new KinematicBackend();
+
+  private int tick;
+  private long[] collisions = new long[0];
+
+  /**
+   * Creates a new backend.
+   *
+   * @param timeline the obstacle timeline, which may be shared with other backends and threads
+   */
+  public TimelineBackend(ObstacleTimeline timeline) {
+    this.timeline = timeline;
+  }
+
+  public ObstacleTimeline getTimeline() {
+    return this.timeline;
+  }
+
+  @Override
+  public void load(WorldState state) {
+    int tick = this.timeline.tickOf(state);
+    if (tick < 0) {
+      throw new IllegalArgumentException("Snapshot does not lie on the obstacle timeline");
+    }
+    this.tick = tick;
+    int length = WorldState.bitsetLength(state.getObstacleCount());
+    if (this.collisions.length != length) {
+      this.collisions = new long[length];
+    }
+    Arrays.fill(this.collisions, 0L);
+    for (int index = 0; index < state.getObstacleCount(); index++) {
+      if (state.isCollided(index)) {
+        this.collisions[index >>> 6] |= 1L << index;
+      }
+    }
+    this.player.loadPlayer(state.getPlayerX(), state.getPlayerY(), state.getPlayerVelocityX(),
+        state.getPlayerVelocityY(), state.isWin());
+  }
+
+  @Override
+  public void step(Force action) {
+    if (this.tick + 1 >= this.timeline.getTickCount()) {
+      throw new IllegalStateException("Stepped past the end of the obstacle timeline");
+    }
+    this.player.step(action);
+    this.tick++;
+    this.timeline.markContacts(this.tick, this.player.getPlayerX(), this.player.getPlayerY(), this.collisions);
+  }
+
+  @Override
+  public WorldState checkpoint() {
+    return this.timeline.state(this.tick, this.player.getPlayerX(), this.player.getPlayerY(),
+        this.player.getPlayerVelocityX(), this.player.getPlayerVelocityY(), this.collisions.clone(),
+        this.player.isWin());
+  }
+
+  @Override
+  public int getRemainingSteps() {
+    return this.timeline.getTickCount() - 1 - this.tick;
+  }
+
+  /**
+   * Returns the tick of the current state on the timeline.
+   *
+   * @return the tick
+   */
+  public int getTick() {
+    return this.tick;
+  }
+
+  @Override
+  public double getPlayerX() {
+    return this.player.getPlayerX();
+  }
+
+  @Override
+  public double getPlayerY() {
+    return this.player.getPlayerY();
+  }
+
+  @Override
+  public double getPlayerVelocityX() {
+    return this.player.getPlayerVelocityX();
+  }
+
+  @Override
+  public double getPlayerVelocityY() {
+    return this.player.getPlayerVelocityY();
+  }
+
+  @Override
+  public boolean isWin() {
+    return this.player.isWin();
+  }
+
+  @Override
+  public boolean isLose() {
+    for (long word : this.collisions) {
+      if (word != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
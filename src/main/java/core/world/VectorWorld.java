@@ -0,0 +1,277 @@
+package core.world;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+import org.dyn4j.dynamics.Force;
+
+/**
+ * A batch of independent hallway environments that are stepped together.
+ *
+ * Each environment runs in its own {@link PhysicsBackend}. One call to {@link #step(int[])} applies one action per
+ * environment and fills primitive arrays with the resulting observations, rewards and done flags; the only allocation
+ * per step is the snapshot each radar scan reads. An observation holds the player state and a {@link Radar} scan
+ * around the player, the same inputs the Q-learning features are built from. Environments that reach a terminal state
+ * start a new episode straight away, and their observation is then the first state of that new episode. The
+ * environments are split into shards that run on a fork-join pool. Each environment draws its episodes from its own
+ * random source split from one seed, so a batch replays identically for the same seed and actions however the shards
+ * are scheduled.
+ */
+public class VectorWorld {
+
+  /** Index of the first radar reading within an observation, after the player x, y, x velocity and y velocity */
+  public static final int RADAR_OFFSET = 4;
+
+  /**
+   * Number of values observed per environment: player x, player y, player x velocity, player y velocity, then the
+   * distance along each of the {@link Radar#RAYS} rays divided by their range
+   */
+  public static final int OBSERVATION_SIZE = RADAR_OFFSET + Radar.RAYS;
+
+  /** Minimum number of environments stepped by one fork-join task */
+  private static final int SHARD_SIZE = 16;
+
+  private final PhysicsBackend[] environments;
+  private final SplittableRandom[] randoms;
+  private final Radar[] radars;
+  private final ForkJoinPool pool;
+
+  private final double[] observations;
+  private final double[] rewards;
+  private final boolean[] done;
+  private final int[] episodeLengths;
+
+  // statistics, only updated on the calling thread
+  private long steps;
+  private long episodes;
+  private long wins;
+  private long totalEpisodeLength;
+
+  /**
+   * Creates a batch of environments, each starting a random episode.
+   *
+   * @param count    the number of environments
+   * @param backends creates the backend of each environment
+   * @param pool     the pool the environments are stepped on
+   * @param seed     the seed the episodes of every environment are drawn from
+   */
+  public VectorWorld(int count, Supplier<PhysicsBackend> backends, ForkJoinPool pool, long seed) {
+    if (count < 1) {
+      throw new IllegalArgumentException("At least one environment is required");
+    }
+    this.environments = new PhysicsBackend[count];
+    this.randoms = new SplittableRandom[count];
+    this.radars = new Radar[count];
+    this.pool = pool;
+    this.observations = new double[count * OBSERVATION_SIZE];
+    this.rewards = new double[count];
+    this.done = new boolean[count];
+    this.episodeLengths = new int[count];
+    SplittableRandom seeds = new SplittableRandom(seed);
+    for (int index = 0; index < count; index++) {
+      this.environments[index] = backends.get();
+      this.randoms[index] = seeds.split();
+      this.radars[index] = new Radar(Radar.RAYS, Radar.RANGE);
+    }
+    this.reset();
+  }
+
+  /**
+   * Creates a batch of {@link KinematicBackend} environments stepped on the common fork-join pool.
+   *
+   * @param count the number of environments
+   * @param seed  the seed the episodes of every environment are drawn from
+   */
+  public VectorWorld(int count, long seed) {
+    this(count, KinematicBackend::new, ForkJoinPool.commonPool(), seed);
+  }
+
+  /**
+   * Starts a new random episode in every environment.
+   */
+  public void reset() {
+    for (int index = 0; index < this.environments.length; index++) {
+      this.environments[index].load(World.generateRandomState(this.randoms[index]));
+      this.episodeLengths[index] = 0;
+      this.rewards[index] = 0.0;
+      this.done[index] = false;
+      this.observe(index);
+    }
+  }
+
+  /**
+   * Advances every environment by one timestep.
+   *
+   * @param actions the index into {@link World#ACTIONS} of the action to perform in each environment
+   */
+  public void step(int[] actions) {
+    if (actions.length != this.environments.length) {
+      throw new IllegalArgumentException("Expected one action per environment");
+    }
+    this.pool.invoke(new Shard(actions, 0, this.environments.length));
+
+    this.steps += this.environments.length;
+    for (int index = 0; index < this.environments.length; index++) {
+      this.episodeLengths[index]++;
+      if (this.done[index]) {
+        this.episodes++;
+        this.totalEpisodeLength += this.episodeLengths[index];
+        this.episodeLengths[index] = 0;
+        if (this.rewards[index] > 0) {
+          this.wins++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Steps one environment, records its outcome, and restarts it if the episode ended.
+   */
+  private void step(int index, Force action) {
+    PhysicsBackend environment = this.environments[index];
+    environment.step(action);
+    this.done[index] = environment.isTerminal();
+    this.rewards[index] = this.done[index] ? environment.reward() : 0.0;
+    if (this.done[index]) {
+      environment.load(World.generateRandomState(this.randoms[index]));
+    }
+    this.observe(index);
+  }
+
+  /**
+   * Copies the player state and a radar scan of one environment into the observation array.
+   */
+  private void observe(int index) {
+    PhysicsBackend environment = this.environments[index];
+    int offset = index * OBSERVATION_SIZE;
+    this.observations[offset] = environment.getPlayerX();
+    this.observations[offset + 1] = environment.getPlayerY();
+    this.observations[offset + 2] = environment.getPlayerVelocityX();
+    this.observations[offset + 3] = environment.getPlayerVelocityY();
+    float[] readings = this.radars[index].scan(environment.checkpoint());
+    for (int ray = 0; ray < Radar.RAYS; ray++) {
+      this.observations[offset + RADAR_OFFSET + ray] = readings[ray];
+    }
+  }
+
+  /**
+   * Returns the number of environments.
+   *
+   * @return the environment count
+   */
+  public int size() {
+    return this.environments.length;
+  }
+
+  /**
+   * Returns the observations after the last step, {@link #OBSERVATION_SIZE} values per environment. The array is
+   * reused and overwritten by every step.
+   *
+   * @return the observations
+   */
+  public double[] getObservations() {
+    return this.observations;
+  }
+
+  /**
+   * Returns the reward of each environment after the last step: -1 for a loss, 1 for a win and 0 otherwise. The array
+   * is reused and overwritten by every step.
+   *
+   * @return the rewards
+   */
+  public double[] getRewards() {
+    return this.rewards;
+  }
+
+  /**
+   * Returns whether the episode of each environment ended in the last step. The array is reused and overwritten by
+   * every step.
+   *
+   * @return the done flags
+   */
+  public boolean[] getDone() {
+    return this.done;
+  }
+
+  /**
+   * Returns the number of episodes that have ended across all environments.
+   *
+   * @return the finished episode count
+   */
+  public long getEpisodes() {
+    return this.episodes;
+  }
+
+  /**
+   * Returns the backend of one environment, holding its current state; its {@link PhysicsBackend#checkpoint()} is the
+   * full snapshot behind the observation.
+   *
+   * @param index the environment
+   * @return the backend
+   */
+  public PhysicsBackend getEnvironment(int index) {
+    return this.environments[index];
+  }
+
+  /**
+   * Prints the number of steps and finished episodes, the win rate and the mean episode length.
+   */
+  public void printStatistics() {
+    System.out.printf("steps: %d, episodes: %d, win rate: %.3f, mean episode length: %.1f%n", this.steps,
+        this.episodes, this.episodes == 0 ? 0.0 : (double) this.wins / this.episodes,
+        this.episodes == 0 ? 0.0 : (double) this.totalEpisodeLength / this.episodes);
+  }
+
+  /**
+   * Steps a contiguous range of environments, splitting it in half until it is small enough.
+   */
+  private final class Shard extends RecursiveAction {
+
+    private final int[] actions;
+    private final int from;
+    private final int to;
+
+    private Shard(int[] actions, int from, int to) {
+      this.actions = actions;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from <= SHARD_SIZE) {
+        for (int index = this.from; index < this.to; index++) {
+          VectorWorld.this.step(index, World.ACTIONS[this.actions[index]]);
+        }
+      } else {
+        int middle = (this.from + this.to) >>> 1;
+        invokeAll(new Shard(this.actions, this.from, middle), new Shard(this.actions, middle, this.to));
+      }
+    }
+  }
+
+  /**
+   * Measures the throughput of a batch of environments driven by random actions.
+   *
+   * @param args optionally the number of environments and the number of batched steps
+   */
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+    int batches = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+
+    VectorWorld world = new VectorWorld(count, 42);
+    SplittableRandom random = new SplittableRandom(42);
+    int[] actions = new int[count];
+    long start = System.nanoTime();
+    for (int batch = 0; batch < batches; batch++) {
+      for (int index = 0; index < count; index++) {
+        actions[index] = random.nextInt(World.ACTIONS.length);
+      }
+      world.step(actions);
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    world.printStatistics();
+    System.out.printf("%.0f steps/s over %d environments%n", (double) count * batches / seconds, count);
+  }
+}
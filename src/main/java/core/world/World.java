@@ -2,21 +2,22 @@ package core.world;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import org.dyn4j.dynamics.Body;
 import org.dyn4j.dynamics.BodyFixture;
 import org.dyn4j.dynamics.Force;
+import org.dyn4j.dynamics.TimeStep;
 import org.dyn4j.geometry.Geometry;
 import org.dyn4j.geometry.MassType;
 import org.dyn4j.geometry.Vector2;
 import org.dyn4j.world.NarrowphaseCollisionData;
+import org.dyn4j.world.PhysicsWorld;
 import org.dyn4j.world.listener.CollisionListenerAdapter;
+import org.dyn4j.world.listener.StepListenerAdapter;
 
 /**
  * Represents the hallway weaver simulation state.
@@ -29,6 +30,8 @@ public class World extends org.dyn4j.world.World<Body> implements Serializable {
   public static final double TIME_PER_UPDATE = 1.0;
   public static final int OBSTACLE_COUNT = 100;
   public static final double OBSTACLE_SPEED = 15.0;
+  public static final double BODY_RADIUS = 1.0;
+  public static final double PLAYER_DAMPING = 2.0;
 
   public static final double FORCE_MAGNITUDE = 500.0;
   public static final Force FORCE_UP = new Force(0, FORCE_MAGNITUDE);
@@ -37,6 +40,9 @@ public class World extends org.dyn4j.world.World<Body> implements Serializable {
   public static final Force FORCE_RIGHT = new Force(FORCE_MAGNITUDE, 0);
   public static final Force FORCE_NONE = new Force(0, 0);
 
+  /** The legal actions, in a fixed order so they can be referred to by index */
+  public static final Force[] ACTIONS = { FORCE_UP, FORCE_DOWN, FORCE_LEFT, FORCE_RIGHT, FORCE_NONE };
+
   // ===== State Variables ===== //
   public boolean won;
   public final Body player;
@@ -44,40 +50,55 @@ public class World extends org.dyn4j.world.World<Body> implements Serializable {
   public final Map<Body, Boolean> obstacles;
   public final List<Body> walls;
 
-  private Random rand;
+  private SplittableRandom rand;
+
+  /** How finely dyn4j integrates this world, inherited by its successors */
+  private StepGranularity granularity;
+
+  /** Whether successors skip actions that certainly collide, inherited by its successors */
+  private boolean pruneFatalActions;
+
+  // the predictor for pruning fatal actions and its scratch buffer, created on first use for the current granularity
+  private TimeToCollision pruning;
+  private boolean[] safe;
+
+  /** Snapshot of the current state, shared until the simulation changes */
+  private WorldState snapshot;
 
   /**
-   * Copies the given world state.
+   * Constructs a world from the given snapshot.
    *
-   * @param player    the player body info
-   * @param obstacles the obstacle body info and collision info
-   * @param won       whether the goal has been touched by the player
+   * @param state the snapshot to restore
    */
-  private World(BodyInfo player, Map<BodyInfo, Boolean> obstacles, boolean won) {
+  public World(WorldState state) {
     super();
 
     // zero gravity, since the simulation is top-down
     this.setGravity(ZERO_GRAVITY);
 
     // create the player
-    this.player = player.toBody();
-    this.player.addFixture(Geometry.createCircle(1.0), 1.0, 0.0, 1.0);
-    this.player.setLinearDamping(2);
+    this.player = new Body();
+    this.player.translate(state.getPlayerX(), state.getPlayerY());
+    this.player.setLinearVelocity(state.getPlayerVelocityX(), state.getPlayerVelocityY());
+    this.player.addFixture(Geometry.createCircle(BODY_RADIUS), 1.0, 0.0, 1.0);
+    this.player.setLinearDamping(PLAYER_DAMPING);
     this.player.setMass(MassType.NORMAL);
     this.addBody(this.player);
 
-    // copy the obstacles
-    this.obstacles = new HashMap<>();
-    for (BodyInfo info : obstacles.keySet()) {
-      Body obstacle = info.toBody();
-      obstacle.addFixture(Geometry.createCircle(1.0), 1.0, 0.0, 1.0);
+    // copy the obstacles, keeping their order stable so snapshots line up with them
+    this.obstacles = new LinkedHashMap<>();
+    for (int index = 0; index < state.getObstacleCount(); index++) {
+      Body obstacle = new Body();
+      obstacle.translate(state.getObstacleX(index), state.getObstacleY(index));
+      obstacle.setLinearVelocity(state.getObstacleVelocityX(index), state.getObstacleVelocityY(index));
+      obstacle.addFixture(Geometry.createCircle(BODY_RADIUS), 1.0, 0.0, 1.0);
       obstacle.setMass(MassType.NORMAL);
-      this.obstacles.put(obstacle, obstacles.get(info));
+      this.obstacles.put(obstacle, state.isCollided(index));
       this.addBody(obstacle);
     }
 
     // create the goal
-    this.won = won;
+    this.won = state.isWin();
     this.goal = new Body();
     goal.addFixture(Geometry.createRectangle(1, WORLD_HEIGHT), 1.0, 0.0, 0.0);
     goal.setMass(MassType.INFINITE);
@@ -107,26 +128,50 @@ public class World extends org.dyn4j.world.World<Body> implements Serializable {
 
     // create the collision listeners
     this.addCollisionListener(new CollisionListener(this));
-    this.rand = new Random();
+
+    // drop the cached snapshot whenever the simulation advances
+    this.addStepListener(new StepListenerAdapter<Body>() {
+      @Override
+      public void end(TimeStep step, PhysicsWorld<Body, ?> world) {
+        World.this.snapshot = null;
+      }
+    });
+    this.rand = new SplittableRandom();
+    this.setStepGranularity(StepGranularity.FINE);
   }
 
   /**
    * Constructs a new, empty world state.
    */
   public World() {
-    this(new BodyInfo(-10, 0, 0, 0),
-        World.generateRandomObstacleInfo(),
-        false);
+    this(World.generateRandomState());
+  }
+
+  /**
+   * Constructs a new world whose obstacles are generated from a seed, so the same seed always gives the same world.
+   *
+   * @param seed the seed
+   */
+  public World(long seed) {
+    this(new SplittableRandom(seed));
+  }
+
+  /**
+   * Constructs a new world whose obstacles, and then random actions, are drawn from the given random source.
+   */
+  private World(SplittableRandom random) {
+    this(World.generateRandomState(random));
+    this.rand = random;
   }
 
   // All mcts functions
 
   public List<World> findChildren() {
-    Force[] actions = this.getActions();
     List<World> childStates = new ArrayList<World>();
     if (this.isTerminal()) {
       return null;
     }
+    Force[] actions = this.getCandidateActions();
     for (Force action : actions) {
       childStates.add(this.generateNextState(action));
     }
@@ -137,10 +182,40 @@ public class World extends org.dyn4j.world.World<Body> implements Serializable {
     if (this.isTerminal()) {
       return null;
     }
-    Force randAction = this.getRandomForce();
+    Force[] actions = this.getCandidateActions();
+    Force randAction = actions[rand.nextInt(actions.length)];
     return this.generateNextState(randAction);
   }
 
+  /**
+   * Returns the actions worth expanding: every action, or with fatal action pruning on, the actions that do not
+   * certainly collide within the next update. When every action collides, all of them are returned.
+   *
+   * @return the actions, which must not be modified
+   */
+  public Force[] getCandidateActions() {
+    Force[] actions = this.getActions();
+    if (!this.pruneFatalActions) {
+      return actions;
+    }
+    if (this.pruning == null) {
+      this.pruning = TimeToCollision.oneUpdate(this.granularity);
+      this.safe = new boolean[actions.length];
+    }
+    int count = this.pruning.findSafeActions(this.checkpoint(), actions, this.safe);
+    if (count == 0 || count == actions.length) {
+      return actions;
+    }
+    Force[] candidates = new Force[count];
+    count = 0;
+    for (int index = 0; index < actions.length; index++) {
+      if (this.safe[index]) {
+        candidates[count++] = actions[index];
+      }
+    }
+    return candidates;
+  }
+
   public Force getRandomForce() {
     Force[] actions = this.getActions();
     return actions[rand.nextInt(actions.length)];
@@ -159,19 +234,46 @@ public class World extends org.dyn4j.world.World<Body> implements Serializable {
   }
 
   /**
-   * Return the body info of randomly generated obstacles.
+   * Return a fresh state with the player at the start and randomly generated obstacles.
+   *
+   * @return the initial state
+   */
+  public static WorldState generateRandomState() {
+    return generateRandomState(new SplittableRandom());
+  }
+
+  /**
+   * Return a fresh state with the player at the start and obstacles generated from the given random source.
    *
-   * @return the body info of the obstacles
+   * @param random the random source
+   * @return the initial state
    */
-  public static Map<BodyInfo, Boolean> generateRandomObstacleInfo() {
-    Map<BodyInfo, Boolean> obstacles = new HashMap<>();
-    for (int count = 0; count < OBSTACLE_COUNT; count++) {
-      Vector2 velocity = new Vector2(Math.random() * 2 * Math.PI).multiply(OBSTACLE_SPEED);
-      double positionX = Math.random() * WORLD_WIDTH - WORLD_WIDTH / 2;
-      double positionY = Math.random() * WORLD_HEIGHT - WORLD_HEIGHT / 2;
-      obstacles.put(new BodyInfo(positionX, positionY, velocity.x, velocity.y), false);
+  public static WorldState generateRandomState(SplittableRandom random) {
+    return generateRandomState(random, OBSTACLE_COUNT);
+  }
+
+  /**
+   * Return a fresh state with the player at the start and the given number of obstacles generated from the given
+   * random source.
+   *
+   * @param random        the random source
+   * @param obstacleCount the number of obstacles
+   * @return the initial state
+   */
+  public static WorldState generateRandomState(SplittableRandom random, int obstacleCount) {
+    double[] obstacleX = new double[obstacleCount];
+    double[] obstacleY = new double[obstacleCount];
+    double[] obstacleVelocityX = new double[obstacleCount];
+    double[] obstacleVelocityY = new double[obstacleCount];
+    for (int count = 0; count < obstacleCount; count++) {
+      Vector2 velocity = new Vector2(random.nextDouble() * 2 * Math.PI).multiply(OBSTACLE_SPEED);
+      obstacleX[count] = random.nextDouble() * WORLD_WIDTH - WORLD_WIDTH / 2;
+      obstacleY[count] = random.nextDouble() * WORLD_HEIGHT - WORLD_HEIGHT / 2;
+      obstacleVelocityX[count] = velocity.x;
+      obstacleVelocityY[count] = velocity.y;
     }
-    return obstacles;
+    return new WorldState(-10, 0, 0, 0, obstacleX, obstacleY, obstacleVelocityX, obstacleVelocityY,
+        new long[WorldState.bitsetLength(obstacleCount)], false);
   }
 
   /**
@@ -214,12 +316,11 @@ public class World extends org.dyn4j.world.World<Body> implements Serializable {
    */
   public World generateNextState(Force action) {
 
-    // clone the world
-    Map<BodyInfo, Boolean> obstacles = new HashMap<>();
-    for (Body obstacle : this.obstacles.keySet()) {
-      obstacles.put(new BodyInfo(obstacle), this.obstacles.get(obstacle));
-    }
-    World nextState = new World(new BodyInfo(this.player), obstacles, this.won);
+    // clone the world, giving it its own share of the random stream so it stays reproducible
+    World nextState = new World(this.checkpoint());
+    nextState.rand = this.rand.split();
+    nextState.setStepGranularity(this.granularity);
+    nextState.pruneFatalActions = this.pruneFatalActions;
 
     // apply the update and update the world
     nextState.player.applyForce(action);
@@ -229,12 +330,128 @@ public class World extends org.dyn4j.world.World<Body> implements Serializable {
   }
 
   /**
-   * Returns the list of legal actions the player can take in a timestep.
+   * Sets how finely this world and the successors generated from it are integrated.
+   *
+   * @param granularity the step granularity
+   */
+  public void setStepGranularity(StepGranularity granularity) {
+    this.granularity = granularity;
+    this.pruning = null;
+    granularity.apply(this.getSettings());
+  }
+
+  /**
+   * Sets whether {@link #findChildren()} and {@link #findRandomChild()} of this world and its successors skip actions
+   * that certainly collide with an obstacle within the next update, see {@link TimeToCollision}.
+   *
+   * @param prune true to skip fatal actions
+   */
+  public void setPruneFatalActions(boolean prune) {
+    this.pruneFatalActions = prune;
+  }
+
+  /**
+   * Returns how finely this world is integrated.
+   *
+   * @return the step granularity
+   */
+  public StepGranularity getStepGranularity() {
+    return this.granularity;
+  }
+
+  /**
+   * Advances this world in place by one timestep after applying the given force to the player.
+   *
+   * Unlike {@link #generateNextState(Force)}, no bodies are allocated; use {@link #checkpoint()} and
+   * {@link #restore(WorldState)} to undo the step.
+   *
+   * @param action the action to perform to the player
+   */
+  public void step(Force action) {
+    this.player.applyForce(action);
+    this.step(1);
+  }
+
+  /**
+   * Captures the current state of this world so it can later be restored with {@link #restore(WorldState)} or
+   * rebuilt with {@link #World(WorldState)}. The snapshot is cached until the world is stepped or restored.
+   *
+   * @return the snapshot
+   */
+  public WorldState checkpoint() {
+    if (this.snapshot != null) {
+      return this.snapshot;
+    }
+    int count = this.obstacles.size();
+    double[] obstacleX = new double[count];
+    double[] obstacleY = new double[count];
+    double[] obstacleVelocityX = new double[count];
+    double[] obstacleVelocityY = new double[count];
+    long[] collisions = new long[WorldState.bitsetLength(count)];
+    int index = 0;
+    for (Map.Entry<Body, Boolean> entry : this.obstacles.entrySet()) {
+      Vector2 position = entry.getKey().getTransform().getTranslation();
+      Vector2 velocity = entry.getKey().getLinearVelocity();
+      obstacleX[index] = position.x;
+      obstacleY[index] = position.y;
+      obstacleVelocityX[index] = velocity.x;
+      obstacleVelocityY[index] = velocity.y;
+      if (entry.getValue()) {
+        collisions[index >>> 6] |= 1L << index;
+      }
+      index++;
+    }
+    Vector2 position = this.player.getTransform().getTranslation();
+    Vector2 velocity = this.player.getLinearVelocity();
+    this.snapshot = new WorldState(position.x, position.y, velocity.x, velocity.y,
+        obstacleX, obstacleY, obstacleVelocityX, obstacleVelocityY, collisions, this.won);
+    return this.snapshot;
+  }
+
+  /**
+   * Rewinds this world to a previously captured snapshot.
+   *
+   * @param state a snapshot with the same number of obstacles as this world
+   */
+  public void restore(WorldState state) {
+    if (state.getObstacleCount() != this.obstacles.size()) {
+      throw new IllegalArgumentException("Snapshot does not match the obstacles of this world");
+    }
+    World.reset(this.player, state.getPlayerX(), state.getPlayerY(),
+        state.getPlayerVelocityX(), state.getPlayerVelocityY());
+    int index = 0;
+    for (Map.Entry<Body, Boolean> entry : this.obstacles.entrySet()) {
+      World.reset(entry.getKey(), state.getObstacleX(index), state.getObstacleY(index),
+          state.getObstacleVelocityX(index), state.getObstacleVelocityY(index));
+      entry.setValue(state.isCollided(index));
+      index++;
+    }
+    this.won = state.isWin();
+    this.setAccumulatedTime(0.0);
+    this.snapshot = state;
+  }
+
+  /**
+   * Resets the given body to a position and velocity, dropping any pending forces.
+   */
+  private static void reset(Body body, double positionX, double positionY, double velocityX, double velocityY) {
+    body.getTransform().identity();
+    body.getTransform().setTranslation(positionX, positionY);
+    body.getPreviousTransform().set(body.getTransform());
+    body.setLinearVelocity(velocityX, velocityY);
+    body.setAngularVelocity(0.0);
+    body.clearForce();
+    body.clearAccumulatedForce();
+    body.setAtRest(false);
+  }
+
+  /**
+   * Returns the list of legal actions the player can take in a timestep. The array is shared and must not be modified.
    *
    * @return the array of forces
    */
   public Force[] getActions() {
-    return new Force[] { FORCE_UP, FORCE_DOWN, FORCE_LEFT, FORCE_RIGHT, FORCE_NONE };
+    return ACTIONS;
   }
 
   /**
@@ -276,52 +493,18 @@ public class World extends org.dyn4j.world.World<Body> implements Serializable {
   }
 
   /**
-   * Represents a serialized version of a {@link Body} object;
+   * Returns the 64-bit fingerprint of the current state, see {@link WorldState#fingerprint()}.
+   *
+   * @return the fingerprint
    */
-  private static class BodyInfo {
-
-    private final double positionX;
-    private final double positionY;
-    private final double velocityX;
-    private final double velocityY;
-
-    /**
-     * Serializes the given body.
-     *
-     * @param body the body
-     */
-    public BodyInfo(Body body) {
-      this(body.getWorldCenter().x, body.getWorldCenter().y, body.getLinearVelocity().x, body.getLinearVelocity().y);
-    }
-
-    /**
-     * Creates a new body info object.
-     *
-     * @param positionX the x position
-     * @param positionY the y position
-     * @param velocityX the x velocity
-     * @param velocityY the y velocity
-     */
-    public BodyInfo(double positionX, double positionY, double velocityX, double velocityY) {
-      this.positionX = positionX;
-      this.positionY = positionY;
-      this.velocityX = velocityX;
-      this.velocityY = velocityY;
-    }
-
-    /**
-     * Deserializes this body.
-     *
-     * @return the body
-     */
-    public Body toBody() {
-      Body body = new Body();
-      body.translate(this.positionX, this.positionY);
-      body.setLinearVelocity(this.velocityX, this.velocityY);
-      return body;
-    }
+  public long fingerprint() {
+    return this.checkpoint().fingerprint();
   }
 
+  /**
+   * Two worlds are equal when their current states are identical. Worlds stepped in place change their identity, so
+   * they must not be mutated while used as keys.
+   */
   @Override
   public boolean equals(Object o) {
     if (o == this) {
@@ -329,43 +512,12 @@ public class World extends org.dyn4j.world.World<Body> implements Serializable {
     } else if (!(o instanceof World)) {
       return false;
     } else {
-      World that = (World) o;
-
-      boolean samePlayers = this.player.getWorldCenter().equals(that.player.getWorldCenter())
-          && this.player.getLinearVelocity().equals(that.player.getLinearVelocity());
-
-      boolean sameObstacles = true;
-      Iterator<Body> thisObstacles = this.obstacles.keySet().iterator();
-      Iterator<Body> thatObstacles = this.obstacles.keySet().iterator();
-      while (thisObstacles.hasNext()) {
-        Body thisObstacle = thisObstacles.next();
-        Body thatObstacle = thatObstacles.next();
-        if (!thisObstacle.getWorldCenter().equals(thatObstacle.getWorldCenter())
-            || !thisObstacle.getLinearVelocity().equals(thatObstacle.getLinearVelocity())) {
-          sameObstacles = false;
-          break;
-        }
-      }
-
-      boolean sameStatus = false;
-      if (this.isWin() && !that.isWin()) {
-        sameStatus = true;
-      } else if (this.isLose() && that.isLose()) {
-        sameStatus = true;
-      } else if (!this.isTerminal() && !that.isTerminal()) {
-        sameStatus = true;
-      }
-
-      return samePlayers && sameObstacles && sameStatus;
+      return this.checkpoint().equals(((World) o).checkpoint());
     }
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(
-        this.won,
-        this.player.getWorldCenter(),
-        this.player.getLinearVelocity(),
-        this.obstacles.hashCode());
+    return this.checkpoint().hashCode();
   }
 }
@@ -0,0 +1,235 @@
+package core.world;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Immutable, compact snapshot of a {@link World}.
+ *
+ * Obstacle positions and velocities are stored as a structure of arrays and the obstacle collision flags as a
+ * bitset, so a snapshot of the default hallway costs a handful of primitive arrays instead of hundreds of objects.
+ */
+public final class WorldState implements Serializable {
+
+  /** Resolution that positions and velocities are quantized to before fingerprinting */
+  private static final double QUANTUM = 1e-9;
+
+  /** Odd multiplier spreading each value's slot over the key space, as in Zobrist hashing */
+  private static final long SLOT_KEY = 0x9E3779B97F4A7C15L;
+
+  private final double playerX;
+  private final double playerY;
+  private final double playerVelocityX;
+  private final double playerVelocityY;
+
+  private final double[] obstacleX;
+  private final double[] obstacleY;
+  private final double[] obstacleVelocityX;
+  private final double[] obstacleVelocityY;
+
+  private final long[] collisions;
+  private final boolean won;
+
+  /** Lazily computed 64-bit fingerprint; zero until first requested */
+  private transient long fingerprint;
+
+  /**
+   * Creates a new snapshot. The arrays are taken over as-is and must not be modified afterwards.
+   *
+   * @param playerX           the x position of the player
+   * @param playerY           the y position of the player
+   * @param playerVelocityX   the x velocity of the player
+   * @param playerVelocityY   the y velocity of the player
+   * @param obstacleX         the x positions of the obstacles
+   * @param obstacleY         the y positions of the obstacles
+   * @param obstacleVelocityX the x velocities of the obstacles
+   * @param obstacleVelocityY the y velocities of the obstacles
+   * @param collisions        the bitset of obstacles the player has collided with
+   * @param won               whether the goal has been touched by the player
+   */
+  WorldState(double playerX, double playerY, double playerVelocityX, double playerVelocityY,
+      double[] obstacleX, double[] obstacleY, double[] obstacleVelocityX, double[] obstacleVelocityY,
+      long[] collisions, boolean won) {
+    this.playerX = playerX;
+    this.playerY = playerY;
+    this.playerVelocityX = playerVelocityX;
+    this.playerVelocityY = playerVelocityY;
+    this.obstacleX = obstacleX;
+    this.obstacleY = obstacleY;
+    this.obstacleVelocityX = obstacleVelocityX;
+    this.obstacleVelocityY = obstacleVelocityY;
+    this.collisions = collisions;
+    this.won = won;
+  }
+
+  /**
+   * Returns the number of words needed for a collision bitset over the given number of obstacles.
+   *
+   * @param obstacleCount the number of obstacles
+   * @return the bitset length
+   */
+  static int bitsetLength(int obstacleCount) {
+    return (obstacleCount + 63) >>> 6;
+  }
+
+  public double getPlayerX() {
+    return this.playerX;
+  }
+
+  public double getPlayerY() {
+    return this.playerY;
+  }
+
+  public double getPlayerVelocityX() {
+    return this.playerVelocityX;
+  }
+
+  public double getPlayerVelocityY() {
+    return this.playerVelocityY;
+  }
+
+  public int getObstacleCount() {
+    return this.obstacleX.length;
+  }
+
+  public double getObstacleX(int index) {
+    return this.obstacleX[index];
+  }
+
+  public double getObstacleY(int index) {
+    return this.obstacleY[index];
+  }
+
+  public double getObstacleVelocityX(int index) {
+    return this.obstacleVelocityX[index];
+  }
+
+  public double getObstacleVelocityY(int index) {
+    return this.obstacleVelocityY[index];
+  }
+
+  /**
+   * Returns the obstacle x positions themselves, so snapshots sharing their obstacles with an {@link ObstacleTimeline}
+   * can be recognized by identity. The array must not be modified.
+   *
+   * @return the obstacle x positions
+   */
+  double[] sharedObstacleX() {
+    return this.obstacleX;
+  }
+
+  /**
+   * Checks if the player has collided with the given obstacle.
+   *
+   * @param index the obstacle index
+   * @return true if the player touched the obstacle; false otherwise
+   */
+  public boolean isCollided(int index) {
+    return (this.collisions[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Checks if this state is a losing state.
+   *
+   * @return true if the player has collided with any obstacle; false otherwise
+   */
+  public boolean isLose() {
+    for (long word : this.collisions) {
+      if (word != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks if this state is a winning state.
+   *
+   * @return true if the player has collided with the goal; false otherwise
+   */
+  public boolean isWin() {
+    return this.won;
+  }
+
+  /**
+   * Checks if this state is a terminal state.
+   *
+   * @return true if the player has won or lost; false otherwise
+   */
+  public boolean isTerminal() {
+    return this.isWin() || this.isLose();
+  }
+
+  /**
+   * Returns a 64-bit fingerprint of this state, computed once and cached.
+   *
+   * Every quantized position and velocity is mixed with a key for its slot and the results are combined with xor,
+   * Zobrist-style, so equal states always share a fingerprint and different states collide with negligible
+   * probability.
+   *
+   * @return the fingerprint
+   */
+  public long fingerprint() {
+    long result = this.fingerprint;
+    if (result == 0) {
+      long slot = 0;
+      result = mix(++slot, this.playerX) ^ mix(++slot, this.playerY)
+          ^ mix(++slot, this.playerVelocityX) ^ mix(++slot, this.playerVelocityY);
+      for (int index = 0; index < this.obstacleX.length; index++) {
+        result ^= mix(++slot, this.obstacleX[index]) ^ mix(++slot, this.obstacleY[index])
+            ^ mix(++slot, this.obstacleVelocityX[index]) ^ mix(++slot, this.obstacleVelocityY[index]);
+      }
+      for (long word : this.collisions) {
+        result ^= mix64(++slot * SLOT_KEY ^ word);
+      }
+      result ^= this.won ? SLOT_KEY : 0;
+      // reserve zero as the "not computed" marker
+      this.fingerprint = result = result == 0 ? 1 : result;
+    }
+    return result;
+  }
+
+  /**
+   * Mixes the quantized value with the key of the given slot.
+   */
+  private static long mix(long slot, double value) {
+    return mix64(slot * SLOT_KEY + Math.round(value / QUANTUM));
+  }
+
+  /**
+   * The SplitMix64 finalizer.
+   */
+  private static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    } else if (!(o instanceof WorldState)) {
+      return false;
+    } else {
+      WorldState that = (WorldState) o;
+      return this.fingerprint() == that.fingerprint()
+          && Double.compare(this.playerX, that.playerX) == 0
+          && Double.compare(this.playerY, that.playerY) == 0
+          && Double.compare(this.playerVelocityX, that.playerVelocityX) == 0
+          && Double.compare(this.playerVelocityY, that.playerVelocityY) == 0
+          && this.won == that.won
+          && Arrays.equals(this.collisions, that.collisions)
+          && Arrays.equals(this.obstacleX, that.obstacleX)
+          && Arrays.equals(this.obstacleY, that.obstacleY)
+          && Arrays.equals(this.obstacleVelocityX, that.obstacleVelocityX)
+          && Arrays.equals(this.obstacleVelocityY, that.obstacleVelocityY);
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    long fingerprint = this.fingerprint();
+    return (int) (fingerprint ^ (fingerprint >>> 32));
+  }
+}
@@ -0,0 +1,119 @@
+package core.agents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import core.world.World;
+import core.world.WorldState;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentSearchTreeTest {
+
+  private static final int THREADS = 8;
+
+  private static final WorldState STATE = World.generateRandomState(new SplittableRandom(0), 3);
+
+  /**
+   * Runs the same task on every thread at once and returns the results.
+   */
+  private static <T> List<T> race(Callable<T> task) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<T>> futures = new ArrayList<>();
+      for (int thread = 0; thread < THREADS; thread++) {
+        futures.add(pool.submit(() -> {
+          start.await();
+          return task.call();
+        }));
+      }
+      start.countDown();
+      List<T> results = new ArrayList<>();
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  void exactlyOneThreadClaimsANode() throws Exception {
+    ConcurrentSearchTree tree = new ConcurrentSearchTree(64);
+    tree.reset(STATE);
+    List<Boolean> claims = race(() -> tree.tryClaim(ConcurrentSearchTree.ROOT));
+    assertEquals(1, claims.stream().filter(claim -> claim).count());
+    assertFalse(tree.isExpanded(ConcurrentSearchTree.ROOT));
+
+    tree.expand(ConcurrentSearchTree.ROOT, new byte[] { 0, 1 }, new WorldState[] { STATE, STATE }, 2);
+    assertTrue(tree.isExpanded(ConcurrentSearchTree.ROOT));
+    assertEquals(3, tree.size());
+    assertEquals(1, tree.firstChild(ConcurrentSearchTree.ROOT));
+    assertEquals(ConcurrentSearchTree.ROOT, tree.parent(2));
+    assertFalse(tree.tryClaim(ConcurrentSearchTree.ROOT));
+  }
+
+  @Test
+  void concurrentExpansionsGetDisjointChildren() throws Exception {
+    // room for the root, its children, and one grandchild under half of them
+    int capacity = 1 + THREADS + THREADS / 2;
+    ConcurrentSearchTree tree = new ConcurrentSearchTree(capacity);
+    tree.reset(STATE);
+    tree.tryClaim(ConcurrentSearchTree.ROOT);
+    byte[] actions = new byte[THREADS];
+    WorldState[] states = new WorldState[THREADS];
+    for (int index = 0; index < THREADS; index++) {
+      actions[index] = (byte) (index % World.ACTIONS.length);
+      states[index] = STATE;
+    }
+    tree.expand(ConcurrentSearchTree.ROOT, actions, states, THREADS);
+
+    // every thread tries to expand every child, each with one grandchild
+    race(() -> {
+      for (int child = 1; child <= THREADS; child++) {
+        if (tree.tryClaim(child)) {
+          tree.expand(child, new byte[] { 0 }, new WorldState[] { STATE }, 1);
+        }
+      }
+      return null;
+    });
+    assertEquals(capacity, tree.size());
+    Set<Integer> grandchildren = new HashSet<>();
+    for (int child = 1; child <= THREADS; child++) {
+      if (tree.isExpanded(child)) {
+        int grandchild = tree.firstChild(child);
+        assertEquals(child, tree.parent(grandchild));
+        assertTrue(grandchildren.add(grandchild));
+      }
+    }
+    assertEquals(THREADS / 2, grandchildren.size());
+  }
+
+  @Test
+  void statisticsAddUpAcrossThreads() throws Exception {
+    ConcurrentSearchTree tree = new ConcurrentSearchTree(8);
+    tree.reset(STATE);
+    int visits = 1_000;
+    race(() -> {
+      for (int visit = 0; visit < visits; visit++) {
+        tree.addVirtualLoss(ConcurrentSearchTree.ROOT, 1.0);
+        tree.backUp(ConcurrentSearchTree.ROOT, 0.5, 1.0);
+      }
+      return null;
+    });
+    assertEquals(THREADS * visits, tree.visits(ConcurrentSearchTree.ROOT));
+    assertEquals(0.5, tree.mean(ConcurrentSearchTree.ROOT), 1e-12);
+  }
+}
@@ -0,0 +1,72 @@
+package core.agents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import core.world.KinematicBackend;
+import core.world.ObstacleTimeline;
+import core.world.TimelineBackend;
+import core.world.World;
+import core.world.WorldState;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import org.dyn4j.dynamics.Force;
+import org.junit.jupiter.api.Test;
+
+class MctsTest {
+
+  /** An empty hallway, so nothing ends an episode early */
+  private static final WorldState EMPTY = World.generateRandomState(new SplittableRandom(0), 0);
+
+  @Test
+  void timeBudgetLiftsTheIterationCap() {
+    mcts search = new mcts(new KinematicBackend());
+    search.setTimeBudget(Duration.ofMillis(15));
+    assertEquals(Integer.MAX_VALUE, search.iterationBudget);
+    search.setIterationBudget(50);
+    assertEquals(50, search.iterationBudget);
+    assertEquals(Duration.ofMillis(15).toNanos(), search.timeBudgetNanos);
+  }
+
+  @Test
+  void rolloutsStopAtTheEndOfTheTimeline() {
+    ObstacleTimeline timeline = new ObstacleTimeline(EMPTY, 3);
+    TimelineBackend backend = new TimelineBackend(timeline);
+    double reward = mcts.simulate(backend, new SplittableRandom(1), EMPTY, 20);
+    assertEquals(0, backend.getRemainingSteps());
+    assertEquals(mcts.distanceCalc(EMPTY.getPlayerX(), backend.getPlayerX()), reward);
+  }
+
+  @Test
+  void treeStopsGrowingAtTheEndOfTheTimeline() {
+    mcts search = new mcts(new KinematicBackend());
+    search.setSeed(1);
+    search.setObstacleTimeline(new ObstacleTimeline(EMPTY, 3));
+    World root = new World(EMPTY);
+    for (int rollout = 0; rollout < 100; rollout++) {
+      search.doRollout(root);
+    }
+    // the root, its children and their children, which lie on the last tick
+    int actions = World.ACTIONS.length;
+    assertEquals(1 + actions + actions * actions, search.getNodeCount());
+  }
+
+  @Test
+  void seededRootParallelSearchIsReproducible() {
+    Force[][] choices = new Force[2][];
+    for (int run = 0; run < choices.length; run++) {
+      ParallelMcts search = new ParallelMcts(ParallelMcts.Mode.ROOT, 3, 40, KinematicBackend::new);
+      search.setSeed(9);
+      World world = new World(4L);
+      choices[run] = new Force[5];
+      for (int decision = 0; decision < choices[run].length && !world.isTerminal(); decision++) {
+        choices[run][decision] = search.chooseAction(world);
+        world = world.generateNextState(choices[run][decision]);
+      }
+      search.shutdown();
+    }
+    for (int decision = 0; decision < choices[0].length; decision++) {
+      assertSame(choices[0][decision], choices[1][decision]);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package core.agents;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import core.world.VectorWorld;
+import core.world.World;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class QLearningAgentTest {
+
+  @Test
+  void observationFeaturesMatchWorldFeatures() {
+    VectorWorld environments = new VectorWorld(3, 5);
+    environments.step(new int[] { 0, 2, 4 });
+    for (int index = 0; index < environments.size(); index++) {
+      FeatureVector observed = new FeatureVector();
+      observed.extract(environments.getObservations(), index * VectorWorld.OBSERVATION_SIZE);
+      FeatureVector extracted = new FeatureVector();
+      extracted.extract(new World(environments.getEnvironment(index).checkpoint()));
+      assertArrayEquals(extracted.bins, observed.bins);
+      assertArrayEquals(extracted.rays, observed.rays, 1e-6f);
+    }
+  }
+
+  @Test
+  void batchedTrainingIsReproducible() {
+    double[][] weights = new double[2][];
+    for (int run = 0; run < weights.length; run++) {
+      QLearningAgent agent = new QLearningAgent(0.05, 0.9, 0.4, 8);
+      agent.setEnvironments(4);
+      agent.setSeed(11);
+      agent.init();
+      weights[run] = agent.getWeights();
+    }
+    assertTrue(Arrays.stream(weights[0]).anyMatch(weight -> weight != 0));
+    assertArrayEquals(weights[0], weights[1]);
+  }
+}
@@ -0,0 +1,113 @@
+package core.agents;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReplayBufferTest {
+
+  /**
+   * Features whose bins and rays are all derived from one marker value, so a transition can be recognized.
+   */
+  private static FeatureVector features(int marker) {
+    FeatureVector features = new FeatureVector();
+    for (int index = 0; index < features.bins.length; index++) {
+      features.bins[index] = marker * 10 + index;
+    }
+    for (int ray = 0; ray < FeatureVector.NUM_RAYS; ray++) {
+      features.rays[ray] = marker + ray / 1000f;
+    }
+    return features;
+  }
+
+  /**
+   * Adds the transition numbered by the marker, taking action marker from marker to marker + 1.
+   */
+  private static void add(ReplayBuffer buffer, int marker) {
+    buffer.add(features(marker), marker, -marker, features(marker + 1), marker % 2 == 0);
+  }
+
+  @Test
+  void ringOverwritesTheOldestTransitions() {
+    ReplayBuffer buffer = new ReplayBuffer(3);
+    for (int marker = 0; marker < 5; marker++) {
+      add(buffer, marker);
+    }
+    assertEquals(3, buffer.size());
+
+    // slots 0 and 1 were overwritten by the fourth and fifth transitions
+    TransitionBatch batch = new TransitionBatch(3);
+    buffer.read(new int[] { 0, 1, 2 }, batch);
+    assertArrayEquals(new int[] { 3, 4, 2 }, batch.actions);
+    assertArrayEquals(new double[] { -3, -4, -2 }, batch.rewards);
+    assertArrayEquals(new boolean[] { false, true, true }, batch.done);
+    assertEquals(30, batch.bins[0]);
+    assertEquals(50, batch.nextBins[3]);
+    assertEquals(2f + 5 / 1000f, batch.rays[2 * FeatureVector.NUM_RAYS + 5]);
+  }
+
+  @Test
+  void sampleStaysWithinTheFilledSlots() {
+    ReplayBuffer buffer = new ReplayBuffer(100);
+    assertThrows(IllegalStateException.class, () -> buffer.sample(new SplittableRandom(1), new int[1]));
+    for (int marker = 0; marker < 7; marker++) {
+      add(buffer, marker);
+    }
+    int[] indices = new int[1_000];
+    buffer.sample(new SplittableRandom(1), indices);
+    for (int index : indices) {
+      assertTrue(index >= 0 && index < 7);
+    }
+  }
+
+  @Test
+  void mappedBufferKeepsTransitionsAcrossRuns(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("replay.bin");
+    ReplayBuffer buffer = ReplayBuffer.open(file, 4);
+    for (int marker = 0; marker < 6; marker++) {
+      add(buffer, marker);
+    }
+    buffer.flush();
+
+    ReplayBuffer reopened = ReplayBuffer.open(file, 4);
+    assertEquals(4, reopened.size());
+    TransitionBatch batch = new TransitionBatch(4);
+    reopened.read(new int[] { 0, 1, 2, 3 }, batch);
+    assertArrayEquals(new int[] { 4, 5, 2, 3 }, batch.actions);
+
+    // the next transition continues the ring where it left off
+    add(reopened, 6);
+    reopened.read(new int[] { 0, 1, 2, 3 }, batch);
+    assertArrayEquals(new int[] { 4, 5, 6, 3 }, batch.actions);
+    assertThrows(IllegalArgumentException.class, () -> ReplayBuffer.open(file, 5));
+  }
+
+  @Test
+  void unrelatedFileIsLeftAlone(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("notes.txt");
+    byte[] contents = "not a replay buffer".getBytes(StandardCharsets.US_ASCII);
+    Files.write(file, contents);
+    assertThrows(IllegalArgumentException.class, () -> ReplayBuffer.open(file, 4));
+    assertArrayEquals(contents, Files.readAllBytes(file));
+  }
+
+  @Test
+  void emptyFileIsInitialized(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("replay.bin");
+    Files.createFile(file);
+    ReplayBuffer buffer = ReplayBuffer.open(file, 4);
+    assertEquals(0, buffer.size());
+    add(buffer, 0);
+    buffer.flush();
+    assertEquals(1, ReplayBuffer.open(file, 4).size());
+  }
+}
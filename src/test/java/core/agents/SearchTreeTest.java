@@ -0,0 +1,87 @@
+package core.agents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import core.world.World;
+import core.world.WorldState;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class SearchTreeTest {
+
+  private static WorldState state(long seed) {
+    return World.generateRandomState(new SplittableRandom(seed), 3);
+  }
+
+  /**
+   * A root with three children, the last of which has two children of its own.
+   */
+  private static SearchTree sample() {
+    SearchTree tree = new SearchTree(2);
+    tree.reset(state(0));
+    tree.expand(SearchTree.ROOT, new byte[] { 0, 2, 4 }, new WorldState[] { state(1), state(2), state(3) }, 3);
+    int last = tree.firstChild(SearchTree.ROOT) + 2;
+    tree.expand(last, new byte[] { 1, 3 }, new WorldState[] { state(4), state(5) }, 2);
+    tree.visit(SearchTree.ROOT, 1.0);
+    tree.visit(last, 1.0);
+    tree.visit(last, -0.5);
+    tree.visit(tree.firstChild(last), 0.25);
+    return tree;
+  }
+
+  @Test
+  void expandAllocatesContiguousChildren() {
+    SearchTree tree = sample();
+    assertEquals(6, tree.size());
+    assertTrue(tree.isExpanded(SearchTree.ROOT));
+    int first = tree.firstChild(SearchTree.ROOT);
+    assertEquals(3, tree.childCount(SearchTree.ROOT));
+    for (int child = first; child < first + 3; child++) {
+      assertEquals(SearchTree.ROOT, tree.parent(child));
+    }
+    assertEquals(4, tree.action(first + 2));
+    assertFalse(tree.isExpanded(first));
+    assertEquals(0.25, tree.mean(first + 2), 1e-12);
+  }
+
+  @Test
+  void copySubtreeKeepsStatisticsAndShape() {
+    SearchTree source = sample();
+    int last = source.firstChild(SearchTree.ROOT) + 2;
+    WorldState rootState = state(6);
+
+    SearchTree copy = new SearchTree(1);
+    copy.copySubtree(source, last, rootState);
+    assertEquals(3, copy.size());
+    assertSame(rootState, copy.state(SearchTree.ROOT));
+    assertEquals(SearchTree.NONE, copy.parent(SearchTree.ROOT));
+    assertEquals(2, copy.visits(SearchTree.ROOT));
+    assertEquals(0.5, copy.valueSum(SearchTree.ROOT), 1e-12);
+
+    int first = copy.firstChild(SearchTree.ROOT);
+    assertEquals(2, copy.childCount(SearchTree.ROOT));
+    for (int index = 0; index < 2; index++) {
+      int child = first + index;
+      int original = source.firstChild(last) + index;
+      assertEquals(SearchTree.ROOT, copy.parent(child));
+      assertEquals(source.action(original), copy.action(child));
+      assertEquals(source.visits(original), copy.visits(child));
+      assertSame(source.state(original), copy.state(child));
+      assertFalse(copy.isExpanded(child));
+    }
+  }
+
+  @Test
+  void clearReleasesNodes() {
+    SearchTree tree = sample();
+    tree.clear();
+    assertEquals(0, tree.size());
+    tree.reset(state(7));
+    assertEquals(1, tree.size());
+    assertFalse(tree.isExpanded(SearchTree.ROOT));
+    assertEquals(0, tree.visits(SearchTree.ROOT));
+  }
+}
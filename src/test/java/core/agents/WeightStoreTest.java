@@ -0,0 +1,54 @@
+package core.agents;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WeightStoreTest {
+
+  private static double[] weights() {
+    SplittableRandom random = new SplittableRandom(3);
+    double[] weights = new double[QLearningAgent.WEIGHT_COUNT];
+    for (int index = 0; index < weights.length; index++) {
+      weights[index] = random.nextDouble() * 2 - 1;
+    }
+    return weights;
+  }
+
+  @Test
+  void savedWeightsLoadBack(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("weights.bin");
+    double[] weights = weights();
+    WeightStore.save(file, weights);
+    assertArrayEquals(weights, WeightStore.load(file));
+    assertTrue(Files.notExists(directory.resolve("weights.bin.tmp")));
+  }
+
+  @Test
+  void corruptWeightsFailTheChecksum(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("weights.bin");
+    WeightStore.save(file, weights());
+    byte[] bytes = Files.readAllBytes(file);
+    bytes[bytes.length - 1] ^= 1;
+    Files.write(file, bytes);
+    IOException error = assertThrows(IOException.class, () -> WeightStore.load(file));
+    assertTrue(error.getMessage().contains("checksum"));
+  }
+
+  @Test
+  void truncatedFileIsRejected(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("weights.bin");
+    WeightStore.save(file, weights());
+    byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 8));
+    assertThrows(IOException.class, () -> WeightStore.load(file));
+  }
+}
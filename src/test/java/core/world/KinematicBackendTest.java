@@ -0,0 +1,77 @@
+package core.world;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link KinematicBackend} against the dyn4j reference on situations whose outcome does not depend on the
+ * details of the contact solver.
+ */
+class KinematicBackendTest {
+
+  private static final double TOLERANCE = 1e-3;
+
+  /**
+   * The player at the start moving right, and obstacles far from it and from each other.
+   */
+  private static WorldState freeMotion() {
+    return new WorldState(-10, 0, 5, 0, new double[] { 50, 100, -100 }, new double[] { 10, -10, 0 },
+        new double[] { 15, 0, -10 }, new double[] { 0, 15, 5 }, new long[1], false);
+  }
+
+  private static void assertSameState(PhysicsBackend expected, PhysicsBackend actual) {
+    WorldState a = expected.checkpoint();
+    WorldState b = actual.checkpoint();
+    assertEquals(a.getPlayerX(), b.getPlayerX(), TOLERANCE);
+    assertEquals(a.getPlayerY(), b.getPlayerY(), TOLERANCE);
+    assertEquals(a.getPlayerVelocityX(), b.getPlayerVelocityX(), TOLERANCE);
+    assertEquals(a.getPlayerVelocityY(), b.getPlayerVelocityY(), TOLERANCE);
+    for (int index = 0; index < a.getObstacleCount(); index++) {
+      assertEquals(a.getObstacleX(index), b.getObstacleX(index), TOLERANCE);
+      assertEquals(a.getObstacleY(index), b.getObstacleY(index), TOLERANCE);
+    }
+  }
+
+  @Test
+  void freeMotionMatchesDyn4j() {
+    PhysicsBackend reference = new Dyn4jBackend();
+    PhysicsBackend candidate = new KinematicBackend();
+    reference.load(freeMotion());
+    candidate.load(freeMotion());
+    for (int step = 0; step < 30; step++) {
+      reference.step(World.ACTIONS[step % World.ACTIONS.length]);
+      candidate.step(World.ACTIONS[step % World.ACTIONS.length]);
+      assertSameState(reference, candidate);
+    }
+    assertFalse(reference.isTerminal());
+    assertFalse(candidate.isTerminal());
+  }
+
+  @Test
+  void headOnCollisionLosesInBoth() {
+    WorldState state = new WorldState(0, 0, 0, 0, new double[] { 3 }, new double[] { 0 },
+        new double[] { -World.OBSTACLE_SPEED }, new double[] { 0 }, new long[1], false);
+    for (PhysicsBackend backend : new PhysicsBackend[] { new Dyn4jBackend(), new KinematicBackend() }) {
+      backend.load(state);
+      for (int step = 0; step < 10 && !backend.isTerminal(); step++) {
+        backend.step(World.FORCE_NONE);
+      }
+      assertTrue(backend.isLose());
+      assertEquals(-1.0, backend.reward());
+    }
+  }
+
+  @Test
+  void checkpointRoundTrips() {
+    KinematicBackend backend = new KinematicBackend();
+    backend.load(freeMotion());
+    backend.step(World.FORCE_UP);
+    WorldState checkpoint = backend.checkpoint();
+    backend.step(World.FORCE_DOWN);
+    backend.load(checkpoint);
+    assertEquals(checkpoint, backend.checkpoint());
+  }
+}
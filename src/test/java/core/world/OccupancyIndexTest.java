@@ -0,0 +1,90 @@
+package core.world;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the grid queries against a linear scan over every obstacle of the timeline.
+ */
+class OccupancyIndexTest {
+
+  private static final int TICKS = 30;
+  private static final int QUERIES = 2_000;
+
+  private final SplittableRandom random = new SplittableRandom(7);
+  private final ObstacleTimeline timeline = new ObstacleTimeline(World.generateRandomState(this.random, 200), TICKS);
+  private final OccupancyIndex index = this.timeline.getOccupancy();
+
+  private boolean overlaps(int tick, int obstacle, double x, double y, double radius) {
+    double dx = this.timeline.getObstacleX(tick, obstacle) - x;
+    double dy = this.timeline.getObstacleY(tick, obstacle) - y;
+    double reach = radius + World.BODY_RADIUS;
+    return dx * dx + dy * dy < reach * reach;
+  }
+
+  private boolean isFreeLinear(int tick, double x, double y, double radius) {
+    for (int obstacle = 0; obstacle < this.timeline.getObstacleCount(); obstacle++) {
+      if (this.overlaps(tick, obstacle, x, y, radius)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Test
+  void queriesMatchLinearScan() {
+    for (int query = 0; query < QUERIES; query++) {
+      int tick = this.random.nextInt(TICKS);
+      double x = this.random.nextDouble() * World.WORLD_WIDTH - World.WORLD_WIDTH / 2;
+      double y = this.random.nextDouble() * World.WORLD_HEIGHT - World.WORLD_HEIGHT / 2;
+      double radius = this.random.nextDouble() * 3;
+      boolean free = this.isFreeLinear(tick, x, y, radius);
+      assertEquals(free, this.index.isFree(tick, x, y, radius));
+      int contact = this.index.firstContact(tick, x, y, radius);
+      assertEquals(free, contact < 0);
+      assertTrue(free || this.overlaps(tick, contact, x, y, radius));
+    }
+  }
+
+  @Test
+  void markContactsMatchesLinearScan() {
+    for (int query = 0; query < QUERIES; query++) {
+      int tick = this.random.nextInt(TICKS);
+      double x = this.random.nextDouble() * World.WORLD_WIDTH - World.WORLD_WIDTH / 2;
+      double y = this.random.nextDouble() * World.WORLD_HEIGHT - World.WORLD_HEIGHT / 2;
+      long[] collisions = new long[WorldState.bitsetLength(this.timeline.getObstacleCount())];
+      this.index.markContacts(tick, x, y, World.BODY_RADIUS, collisions);
+      for (int obstacle = 0; obstacle < this.timeline.getObstacleCount(); obstacle++) {
+        boolean marked = (collisions[obstacle >>> 6] & 1L << obstacle) != 0;
+        assertEquals(this.overlaps(tick, obstacle, x, y, World.BODY_RADIUS), marked);
+      }
+    }
+  }
+
+  @Test
+  void earliestCollisionMatchesLinearScan() {
+    int length = 10;
+    double[] pathX = new double[length];
+    double[] pathY = new double[length];
+    for (int query = 0; query < QUERIES / 10; query++) {
+      int tick = this.random.nextInt(TICKS);
+      double x = this.random.nextDouble() * World.WORLD_WIDTH - World.WORLD_WIDTH / 2;
+      double y = this.random.nextDouble() * World.WORLD_HEIGHT - World.WORLD_HEIGHT / 2;
+      for (int point = 0; point < length; point++) {
+        pathX[point] = x + 0.5 * point;
+        pathY[point] = y;
+      }
+      int expected = -1;
+      for (int point = 0; point < length && tick + point < TICKS; point++) {
+        if (!this.isFreeLinear(tick + point, pathX[point], pathY[point], World.BODY_RADIUS)) {
+          expected = tick + point;
+          break;
+        }
+      }
+      assertEquals(expected, this.index.earliestCollision(tick, pathX, pathY, length, World.BODY_RADIUS));
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package core.world;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks how much simulated time one update covers, which the step granularity and the pruning horizon depend on.
+ */
+class StepGranularityTest {
+
+  private static final double SPEED = 10.0;
+
+  /**
+   * A hallway without obstacles, the player moving right from the start.
+   */
+  private static World movingPlayer(StepGranularity granularity) {
+    World world = new World(new WorldState(-10, 0, SPEED, 0, new double[0], new double[0], new double[0],
+        new double[0], new long[0], false));
+    world.setStepGranularity(granularity);
+    return world;
+  }
+
+  private static void assertOneStep(StepGranularity granularity, double distance) {
+    // one step of the granularity, up to damping, rather than a whole second of steps
+    double step = SPEED * granularity.getStepFrequency();
+    assertEquals(step, distance, 0.2 * step);
+  }
+
+  @Test
+  void generateNextStateAdvancesOneStep() {
+    for (StepGranularity granularity : new StepGranularity[] { StepGranularity.FINE, StepGranularity.COARSE }) {
+      World world = movingPlayer(granularity);
+      World next = world.generateNextState(World.FORCE_NONE);
+      assertOneStep(granularity, next.checkpoint().getPlayerX() - world.checkpoint().getPlayerX());
+    }
+  }
+
+  @Test
+  void stepAdvancesOneStep() {
+    for (StepGranularity granularity : new StepGranularity[] { StepGranularity.FINE, StepGranularity.COARSE }) {
+      World world = movingPlayer(granularity);
+      double start = world.checkpoint().getPlayerX();
+      world.step(World.FORCE_NONE);
+      assertOneStep(granularity, world.checkpoint().getPlayerX() - start);
+    }
+  }
+
+  @Test
+  void successorsInheritTheGranularity() {
+    World world = movingPlayer(StepGranularity.COARSE);
+    assertEquals(StepGranularity.COARSE, world.generateNextState(World.FORCE_UP).getStepGranularity());
+  }
+}
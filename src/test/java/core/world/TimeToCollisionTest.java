@@ -0,0 +1,59 @@
+package core.world;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class TimeToCollisionTest {
+
+  /**
+   * The player at rest in the middle of the hallway, with one obstacle to its right moving straight at it.
+   */
+  private static WorldState approaching(double distance) {
+    return new WorldState(0, 0, 0, 0, new double[] { distance }, new double[] { 0 },
+        new double[] { -World.OBSTACLE_SPEED }, new double[] { 0 }, new long[1], false);
+  }
+
+  @Test
+  void unavoidableCollisionIsFatalForEveryAction() {
+    // the gap of 0.1 closes in well under one step whatever the player does
+    boolean[] safe = new boolean[World.ACTIONS.length];
+    assertEquals(0, TimeToCollision.oneStep().findSafeActions(approaching(2.1), World.ACTIONS, safe));
+    assertArrayEquals(new boolean[World.ACTIONS.length], safe);
+  }
+
+  @Test
+  void distantObstacleIsSafe() {
+    boolean[] safe = new boolean[World.ACTIONS.length];
+    assertEquals(World.ACTIONS.length,
+        TimeToCollision.oneStep().findSafeActions(approaching(50), World.ACTIONS, safe));
+  }
+
+  @Test
+  void horizonIsOneStep() {
+    // contact after 2.4 fine steps: beyond a one-step horizon, within a one-second one
+    WorldState state = approaching(2.6);
+    double step = StepGranularity.FINE.getStepFrequency();
+    assertEquals(Double.POSITIVE_INFINITY, TimeToCollision.oneStep().timeToCollision(state, World.FORCE_NONE));
+    assertEquals(Double.POSITIVE_INFINITY,
+        TimeToCollision.oneUpdate(StepGranularity.FINE).timeToCollision(state, World.FORCE_NONE));
+    double time = new TimeToCollision(step, 60).timeToCollision(state, World.FORCE_NONE);
+    assertEquals(0.6 / World.OBSTACLE_SPEED, time, 1e-9);
+  }
+
+  @Test
+  void worldKeepsEveryActionWhenAllAreFatal() {
+    World world = new World(approaching(2.1));
+    world.setPruneFatalActions(true);
+    assertSame(world.getActions(), world.getCandidateActions());
+  }
+
+  @Test
+  void worldKeepsSurvivableActions() {
+    World world = new World(approaching(50));
+    world.setPruneFatalActions(true);
+    assertEquals(World.ACTIONS.length, world.getCandidateActions().length);
+  }
+}
@@ -0,0 +1,54 @@
+package core.world;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class WorldStateTest {
+
+  private static WorldState state(double playerX, long collisions, boolean won) {
+    return new WorldState(playerX, 1.5, 2.0, -3.0, new double[] { 10, -20 }, new double[] { 5, -5 },
+        new double[] { 15, 0 }, new double[] { 0, -15 }, new long[] { collisions }, won);
+  }
+
+  @Test
+  void equalStatesShareTheirFingerprint() {
+    WorldState a = state(-10, 0L, false);
+    WorldState b = state(-10, 0L, false);
+    assertEquals(a, b);
+    assertEquals(a.fingerprint(), b.fingerprint());
+    assertEquals(a.hashCode(), b.hashCode());
+  }
+
+  @Test
+  void fingerprintIsCachedAndNeverZero() {
+    WorldState state = state(-10, 0L, false);
+    long fingerprint = state.fingerprint();
+    assertNotEquals(0L, fingerprint);
+    assertEquals(fingerprint, state.fingerprint());
+  }
+
+  @Test
+  void differentStatesAreNotEqual() {
+    WorldState state = state(-10, 0L, false);
+    WorldState moved = state(-10 + 1e-6, 0L, false);
+    WorldState collided = state(-10, 2L, false);
+    WorldState won = state(-10, 0L, true);
+    assertNotEquals(state, moved);
+    assertNotEquals(state.fingerprint(), moved.fingerprint());
+    assertNotEquals(state, collided);
+    assertNotEquals(state.fingerprint(), collided.fingerprint());
+    assertNotEquals(state, won);
+    assertNotEquals(state.fingerprint(), won.fingerprint());
+  }
+
+  @Test
+  void collisionBitsetDecidesTheOutcome() {
+    WorldState collided = state(-10, 2L, false);
+    assertTrue(collided.isCollided(1));
+    assertTrue(collided.isLose());
+    assertTrue(state(-10, 0L, true).isWin());
+  }
+}